@@ -0,0 +1,90 @@
+#!/usr/bin/env bash
+# Startup time and memory of the JVM build versus the native executable.
+#
+# For each available build, starts the app RUNS times on a fresh data directory and measures the time until
+# GET /api/speakers answers, and the resident set size right after that and once ROSTER speakers were
+# imported. Prints the median of each.
+#
+# usage: scripts/startup-benchmark.sh [runs] [roster]
+#   JAR    (default target/poli-chrono-1.0-SNAPSHOT-runner.jar)  build with ./mvnw package
+#   NATIVE (default target/poli-chrono-1.0-SNAPSHOT-runner)      build with ./mvnw package -Dnative
+#   JAVA   (default java), PORT (default 18080)
+set -euo pipefail
+
+RUNS=${1:-5}
+ROSTER=${2:-1000}
+JAR=${JAR:-target/poli-chrono-1.0-SNAPSHOT-runner.jar}
+NATIVE=${NATIVE:-target/poli-chrono-1.0-SNAPSHOT-runner}
+JAVA=${JAVA:-java}
+PORT=${PORT:-18080}
+URL="http://localhost:$PORT/api/speakers"
+
+now_ms() {
+    date +%s%3N
+}
+
+rss_kb() {
+    ps -o rss= -p "$1" | tr -d ' '
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+roster_csv() {
+    echo "name"
+    for ((i = 1; i <= ROSTER; i++)); do
+        echo "Speaker $i"
+    done
+}
+
+# run <label>: starts the jvm or native build
+run() {
+    local label=$1
+    local starts="" idle="" loaded=""
+    local csv
+    csv=$(mktemp)
+    roster_csv > "$csv"
+    for ((r = 1; r <= RUNS; r++)); do
+        local data
+        data=$(mktemp -d)
+        local t0
+        t0=$(now_ms)
+        local props=(-Dquarkus.http.port="$PORT" -Dspeakers.file="$data/speakers.json" -Dimages.dir="$data/images"
+            -Dquarkus.http.access-log.enabled=false)
+        if [[ $label == jvm ]]; then
+            "$JAVA" "${props[@]}" -jar "$JAR" > "$data/app.log" 2>&1 &
+        else
+            "$NATIVE" "${props[@]}" > "$data/app.log" 2>&1 &
+        fi
+        local pid=$!
+        until curl -sf -o /dev/null "$URL"; do
+            if ! kill -0 "$pid" 2> /dev/null; then
+                echo "$label failed to start, see $data/app.log" >&2
+                exit 1
+            fi
+            sleep 0.005
+        done
+        starts+="$(($(now_ms) - t0))"$'\n'
+        idle+="$(rss_kb "$pid")"$'\n'
+        curl -sf -o /dev/null -X POST -H 'Content-Type: text/csv' --data-binary @"$csv" "$URL/import"
+        loaded+="$(rss_kb "$pid")"$'\n'
+        kill "$pid"
+        wait "$pid" 2> /dev/null || true
+        rm -rf "$data"
+    done
+    rm -f "$csv"
+    printf '%-8s first response %6s ms   RSS idle %7s KB   RSS with %d speakers %7s KB\n' "$label" \
+        "$(printf '%s' "$starts" | median)" "$(printf '%s' "$idle" | median)" "$ROSTER" "$(printf '%s' "$loaded" | median)"
+}
+
+if [[ -f "$JAR" ]]; then
+    run jvm
+else
+    echo "jvm: $JAR not found, skipped" >&2
+fi
+if [[ -x "$NATIVE" ]]; then
+    run native
+else
+    echo "native: $NATIVE not found, skipped" >&2
+fi
@@ -0,0 +1,84 @@
+package com.lopixlabs.polichrono.codec;
+
+import java.util.List;
+
+/**
+ * Encoders for the WebSocket control messages, one per {@code type}. The roster itself is sent as the
+ * plain array built by {@code SpeakerStore.stateJson()}.
+ */
+public final class Frames {
+
+    private Frames() {
+    }
+
+    public static String autoStop(boolean enabled) {
+        return "{\"type\":\"autoStop\",\"enabled\":" + enabled + "}";
+    }
+
+    public static String title(String title) {
+        StringBuilder sb = new StringBuilder(32 + (title == null ? 0 : title.length()));
+        sb.append("{\"type\":\"title\",\"value\":");
+        JsonText.appendString(sb, title);
+        return sb.append('}').toString();
+    }
+
+    public static String size(int cardWidth, int textScale, int actionSize) {
+        return "{\"type\":\"size\",\"cardWidth\":" + cardWidth + ",\"textScale\":" + textScale
+                + ",\"actionSize\":" + actionSize + "}";
+    }
+
+    public static String sizeMain(int cardWidth, int textScale) {
+        return "{\"type\":\"sizeMain\",\"cardWidth\":" + cardWidth + ",\"textScale\":" + textScale + "}";
+    }
+
+    public static String limits(long limitMillis, long warnMillis, String action) {
+        StringBuilder sb = new StringBuilder(96);
+        sb.append("{\"type\":\"limits\",\"limitMillis\":").append(limitMillis)
+                .append(",\"warnMillis\":").append(warnMillis)
+                .append(",\"action\":");
+        JsonText.appendString(sb, action);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Reload request as replicated and relayed: each server spreads its own clients over {@code windowMillis}.
+     */
+    public static String reload(long windowMillis) {
+        return "{\"type\":\"reload\",\"windowMs\":" + windowMillis + "}";
+    }
+
+    /**
+     * Reload request for one client, which reloads after {@code delayMillis}.
+     */
+    public static String reload(long windowMillis, long delayMillis) {
+        return "{\"type\":\"reload\",\"windowMs\":" + windowMillis + ",\"delayMs\":" + delayMillis + "}";
+    }
+
+    /**
+     * Everything a new connection needs, as one message: the given frames, already encoded, in order.
+     */
+    public static String init(List<String> frames) {
+        int length = 32;
+        for (String f : frames) {
+            length += f.length() + 1;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        sb.append("{\"type\":\"init\",\"frames\":[");
+        for (int i = 0; i < frames.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(frames.get(i));
+        }
+        return sb.append("]}").toString();
+    }
+
+    public static String alert(String id, String level) {
+        StringBuilder sb = new StringBuilder(80);
+        sb.append("{\"type\":\"alert\",\"id\":");
+        JsonText.appendString(sb, id);
+        sb.append(",\"level\":");
+        JsonText.appendString(sb, level);
+        return sb.append('}').toString();
+    }
+}
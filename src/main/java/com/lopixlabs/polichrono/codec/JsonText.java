@@ -0,0 +1,45 @@
+package com.lopixlabs.polichrono.codec;
+
+/**
+ * Minimal JSON text helpers for encoders that append straight into a {@link StringBuilder}.
+ */
+public final class JsonText {
+
+    private JsonText() {
+    }
+
+    public static void appendLong(StringBuilder sb, Long v) {
+        if (v == null) {
+            sb.append("null");
+        } else {
+            sb.append(v.longValue());
+        }
+    }
+
+    public static void appendString(StringBuilder sb, String v) {
+        if (v == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0, n = v.length(); i < n; i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append("\\u00");
+                        sb.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,203 @@
+package com.lopixlabs.polichrono.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.lopixlabs.polichrono.model.Speaker;
+import com.lopixlabs.polichrono.persistence.StoredState;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written streaming codec for {@link StoredState} and {@link Speaker}: the state file, replication
+ * snapshots and roster exports. Field by field over Jackson's parser and generator, so nothing goes through
+ * bean introspection or reflection (and nothing needs registering for native images).
+ * <p>
+ * Reading is lenient like the former data binding: unknown fields are skipped, numbers may be quoted, and a
+ * bare array is read as a legacy speakers-only file.
+ */
+public final class StateCodec {
+
+    private StateCodec() {
+    }
+
+    public static void writeState(JsonGenerator g, StoredState s) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField("version", s.version());
+        writeBoolean(g, "autoStopOnStart", s.autoStopOnStart());
+        writeString(g, "title", s.title());
+        writeInt(g, "uiCardWidth", s.uiCardWidth());
+        writeInt(g, "uiTextScale", s.uiTextScale());
+        writeInt(g, "uiActionSize", s.uiActionSize());
+        writeInt(g, "uiCardWidthMain", s.uiCardWidthMain());
+        writeInt(g, "uiTextScaleMain", s.uiTextScaleMain());
+        writeLong(g, "defaultLimitMillis", s.defaultLimitMillis());
+        writeLong(g, "defaultWarnMillis", s.defaultWarnMillis());
+        writeString(g, "limitAction", s.limitAction());
+        g.writeArrayFieldStart("speakers");
+        if (s.speakers() != null) {
+            for (Speaker sp : s.speakers()) {
+                writeSpeaker(g, sp);
+            }
+        }
+        g.writeEndArray();
+        g.writeEndObject();
+    }
+
+    public static void writeSpeaker(JsonGenerator g, Speaker s) throws IOException {
+        g.writeStartObject();
+        writeString(g, "id", s.getId());
+        writeString(g, "name", s.getName());
+        writeString(g, "faceUrl", s.getFaceUrl());
+        writeString(g, "imageFilename", s.getImageFilename());
+        g.writeNumberField("elapsedMillis", s.getElapsedMillis());
+        g.writeBooleanField("running", s.isRunning());
+        writeLong(g, "limitMillis", s.getLimitMillis());
+        writeLong(g, "warnMillis", s.getWarnMillis());
+        g.writeEndObject();
+    }
+
+    /**
+     * Reads a state object, or a legacy array of speakers, starting at the parser's next token.
+     * Returns null on empty input.
+     */
+    public static StoredState readState(JsonParser p) throws IOException {
+        JsonToken t = p.nextToken();
+        if (t == null) {
+            return null;
+        }
+        if (t == JsonToken.START_ARRAY) {
+            return new StoredState(StoredState.VERSION, null, null, null, null, null, null, null,
+                    null, null, null, readSpeakers(p));
+        }
+        expect(p, JsonToken.START_OBJECT);
+        int version = StoredState.VERSION;
+        Boolean autoStop = null;
+        String title = null;
+        Integer cardWidth = null;
+        Integer textScale = null;
+        Integer actionSize = null;
+        Integer cardWidthMain = null;
+        Integer textScaleMain = null;
+        Long defaultLimit = null;
+        Long defaultWarn = null;
+        String limitAction = null;
+        List<Speaker> speakers = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "version" -> version = p.getValueAsInt(version);
+                case "autoStopOnStart" -> autoStop = readBoolean(p);
+                case "title" -> title = readString(p);
+                case "uiCardWidth" -> cardWidth = readInt(p);
+                case "uiTextScale" -> textScale = readInt(p);
+                case "uiActionSize" -> actionSize = readInt(p);
+                case "uiCardWidthMain" -> cardWidthMain = readInt(p);
+                case "uiTextScaleMain" -> textScaleMain = readInt(p);
+                case "defaultLimitMillis" -> defaultLimit = readLong(p);
+                case "defaultWarnMillis" -> defaultWarn = readLong(p);
+                case "limitAction" -> limitAction = readString(p);
+                case "speakers" -> {
+                    if (p.currentToken() == JsonToken.START_ARRAY) {
+                        speakers = readSpeakers(p);
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        return new StoredState(version, autoStop, title, cardWidth, textScale, actionSize, cardWidthMain,
+                textScaleMain, defaultLimit, defaultWarn, limitAction, speakers);
+    }
+
+    /**
+     * Reads one speaker object; the parser must be positioned on its {@code START_OBJECT}.
+     */
+    public static Speaker readSpeaker(JsonParser p) throws IOException {
+        expect(p, JsonToken.START_OBJECT);
+        Speaker s = new Speaker();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "id" -> s.setId(readString(p));
+                case "name" -> s.setName(readString(p));
+                case "faceUrl" -> s.setFaceUrl(readString(p));
+                case "imageFilename" -> s.setImageFilename(readString(p));
+                case "elapsedMillis" -> s.setElapsedMillis(p.getValueAsLong(0L));
+                case "running" -> s.setRunning(Boolean.TRUE.equals(readBoolean(p)));
+                case "limitMillis" -> s.setLimitMillis(readLong(p));
+                case "warnMillis" -> s.setWarnMillis(readLong(p));
+                default -> p.skipChildren();
+            }
+        }
+        return s;
+    }
+
+    private static List<Speaker> readSpeakers(JsonParser p) throws IOException {
+        List<Speaker> speakers = new ArrayList<>();
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            speakers.add(readSpeaker(p));
+        }
+        expect(p, JsonToken.END_ARRAY);
+        return speakers;
+    }
+
+    private static void expect(JsonParser p, JsonToken token) throws IOException {
+        if (p.currentToken() != token) {
+            throw new IOException("Expected " + token + " but found " + p.currentToken() + " at " + p.currentLocation());
+        }
+    }
+
+    private static String readString(JsonParser p) throws IOException {
+        return p.currentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+    }
+
+    private static Boolean readBoolean(JsonParser p) throws IOException {
+        return p.currentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsBoolean();
+    }
+
+    private static Integer readInt(JsonParser p) throws IOException {
+        return p.currentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsInt();
+    }
+
+    private static Long readLong(JsonParser p) throws IOException {
+        return p.currentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsLong();
+    }
+
+    private static void writeString(JsonGenerator g, String field, String v) throws IOException {
+        if (v == null) {
+            g.writeNullField(field);
+        } else {
+            g.writeStringField(field, v);
+        }
+    }
+
+    private static void writeBoolean(JsonGenerator g, String field, Boolean v) throws IOException {
+        if (v == null) {
+            g.writeNullField(field);
+        } else {
+            g.writeBooleanField(field, v);
+        }
+    }
+
+    private static void writeInt(JsonGenerator g, String field, Integer v) throws IOException {
+        if (v == null) {
+            g.writeNullField(field);
+        } else {
+            g.writeNumberField(field, v);
+        }
+    }
+
+    private static void writeLong(JsonGenerator g, String field, Long v) throws IOException {
+        if (v == null) {
+            g.writeNullField(field);
+        } else {
+            g.writeNumberField(field, v);
+        }
+    }
+}
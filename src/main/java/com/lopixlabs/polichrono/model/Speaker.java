@@ -1,20 +1,24 @@
 package com.lopixlabs.polichrono.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.quarkus.runtime.annotations.RegisterForReflection;
 
-import java.time.Instant;
 import java.util.Objects;
 import java.util.UUID;
 
+// REST responses may return speakers inside a generic Response/List, which native builds cannot discover
+@RegisterForReflection
 public class Speaker {
     private String id;
     private String name;
     private String faceUrl; // legacy: kept for backward compatibility (no longer used by UI)
     private String imageFilename; // stored on disk under data/images
-    private long elapsedMillis; // accumulated time when not running
+    private long elapsedMillis; // as of when this copy was taken; live timers are kept in the store
     private boolean running;
+    private Long limitMillis; // speaking limit, null = use the store default
+    private Long warnMillis; // warn when this much time is left, null = use the store default
     @JsonIgnore
-    private Long lastStartEpochMillis; // when started, to compute live elapsed
+    private int slot = -1; // index into the store's timer table
 
     public Speaker() {
         // default
@@ -40,46 +44,22 @@ public class Speaker {
     public String getImageFilename() { return imageFilename; }
     public void setImageFilename(String imageFilename) { this.imageFilename = imageFilename; }
 
-    public long getElapsedMillis() {
-        if (running && lastStartEpochMillis != null) {
-            long now = Instant.now().toEpochMilli();
-            return elapsedMillis + Math.max(0, now - lastStartEpochMillis);
-        }
-        return elapsedMillis;
-    }
+    public long getElapsedMillis() { return elapsedMillis; }
 
     public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
 
     public boolean isRunning() { return running; }
     public void setRunning(boolean running) { this.running = running; }
 
-    @JsonIgnore
-    public Long getLastStartEpochMillis() { return lastStartEpochMillis; }
-    public void setLastStartEpochMillis(Long lastStartEpochMillis) { this.lastStartEpochMillis = lastStartEpochMillis; }
-
-    public void start() {
-        if (!running) {
-            running = true;
-            lastStartEpochMillis = Instant.now().toEpochMilli();
-        }
-    }
+    public Long getLimitMillis() { return limitMillis; }
+    public void setLimitMillis(Long limitMillis) { this.limitMillis = limitMillis; }
 
-    public void stop() {
-        if (running) {
-            long now = Instant.now().toEpochMilli();
-            if (lastStartEpochMillis != null) {
-                elapsedMillis += Math.max(0, now - lastStartEpochMillis);
-            }
-            running = false;
-            lastStartEpochMillis = null;
-        }
-    }
+    public Long getWarnMillis() { return warnMillis; }
+    public void setWarnMillis(Long warnMillis) { this.warnMillis = warnMillis; }
 
-    public void reset() {
-        running = false;
-        elapsedMillis = 0;
-        lastStartEpochMillis = null;
-    }
+    @JsonIgnore
+    public int getSlot() { return slot; }
+    public void setSlot(int slot) { this.slot = slot; }
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,10 @@
+package com.lopixlabs.polichrono.model;
+
+import java.util.List;
+
+/**
+ * One page of the roster; {@code nextCursor} is the id to pass as {@code cursor} for the following page,
+ * or null on the last page.
+ */
+public record SpeakerPage(List<Speaker> items, String nextCursor) {
+}
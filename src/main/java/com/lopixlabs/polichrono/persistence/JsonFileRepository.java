@@ -0,0 +1,48 @@
+package com.lopixlabs.polichrono.persistence;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.lopixlabs.polichrono.codec.StateCodec;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The original storage: the whole state as one pretty-printed JSON file, rewritten on every change.
+ * A legacy file holding only an array of speakers is still read.
+ */
+public class JsonFileRepository implements SpeakerRepository {
+
+    private final Path path;
+    private final JsonFactory json;
+
+    public JsonFileRepository(Path path, JsonFactory json) {
+        this.path = path;
+        this.json = json;
+    }
+
+    @Override
+    public StoredState load() throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (Reader in = Files.newBufferedReader(path); JsonParser p = json.createParser(in)) {
+            return StateCodec.readState(p);
+        }
+    }
+
+    @Override
+    public void save(StoredState state) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(path); JsonGenerator g = json.createGenerator(out)) {
+            g.useDefaultPrettyPrinter();
+            StateCodec.writeState(g, state);
+        }
+    }
+}
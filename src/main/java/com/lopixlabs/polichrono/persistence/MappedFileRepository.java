@@ -0,0 +1,235 @@
+package com.lopixlabs.polichrono.persistence;
+
+import com.lopixlabs.polichrono.model.Speaker;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary storage in a memory-mapped file: a fixed header with the app properties, one fixed-size record per
+ * speaker holding its timer and limits, and a side area with the variable-length strings (ids, names, file
+ * names, title). A start or stop writes a few bytes into the speaker's record; only roster and settings
+ * changes rewrite the file. Loading reads the mapped bytes directly, with no parsing.
+ * <p>
+ * The file only grows, so the mapping never has to shrink under a live buffer. Writes reach the page cache
+ * immediately and survive a crash of the process; they are not forced to disk.
+ * <p>
+ * Not thread-safe: called under the {@code SpeakerStore} lock.
+ */
+public class MappedFileRepository implements SpeakerRepository {
+
+    private static final int MAGIC = 0x50434852; // "PCHR"
+    private static final int FORMAT = 1;
+    private static final int MIN_SIZE = 64 * 1024;
+
+    // header
+    private static final int H_MAGIC = 0;
+    private static final int H_FORMAT = 4;
+    private static final int H_COUNT = 8;
+    private static final int H_STRINGS_OFFSET = 12;
+    private static final int H_STRINGS_LENGTH = 16;
+    private static final int H_AUTO_STOP = 20;
+    private static final int H_CARD_WIDTH = 24;
+    private static final int H_TEXT_SCALE = 28;
+    private static final int H_ACTION_SIZE = 32;
+    private static final int H_CARD_WIDTH_MAIN = 36;
+    private static final int H_TEXT_SCALE_MAIN = 40;
+    private static final int H_DEFAULT_LIMIT = 48;
+    private static final int H_DEFAULT_WARN = 56;
+    private static final int H_TITLE = 64;
+    private static final int H_LIMIT_ACTION = 72;
+    private static final int HEADER_SIZE = 128;
+
+    // speaker record; strings are (offset, length) pairs into the side area, length -1 for null
+    private static final int R_ELAPSED = 0;
+    private static final int R_LIMIT = 8;
+    private static final int R_WARN = 16;
+    private static final int R_RUNNING = 24;
+    private static final int R_ID = 28;
+    private static final int R_NAME = 36;
+    private static final int R_FACE_URL = 44;
+    private static final int R_IMAGE = 52;
+    private static final int RECORD_SIZE = 64;
+    private static final long NONE = -1L;
+
+    private final Path path;
+    private MappedByteBuffer buf;
+    // speaker id -> record offset, as of the last load or save
+    private final Map<String, Integer> records = new HashMap<>();
+
+    public MappedFileRepository(Path path) {
+        this.path = path;
+    }
+
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    @Override
+    public StoredState load() throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return null;
+        }
+        map(Files.size(path));
+        if (buf.getInt(H_MAGIC) != MAGIC || buf.getInt(H_FORMAT) != FORMAT) {
+            throw new IOException("Not a speaker state file: " + path);
+        }
+        int count = buf.getInt(H_COUNT);
+        int strings = buf.getInt(H_STRINGS_OFFSET);
+        List<Speaker> speakers = new ArrayList<>(count);
+        records.clear();
+        for (int i = 0; i < count; i++) {
+            int rec = HEADER_SIZE + i * RECORD_SIZE;
+            Speaker s = new Speaker();
+            s.setId(readString(strings, rec + R_ID));
+            s.setName(readString(strings, rec + R_NAME));
+            s.setFaceUrl(readString(strings, rec + R_FACE_URL));
+            s.setImageFilename(readString(strings, rec + R_IMAGE));
+            s.setElapsedMillis(buf.getLong(rec + R_ELAPSED));
+            s.setRunning(buf.get(rec + R_RUNNING) != 0);
+            s.setLimitMillis(readOptional(rec + R_LIMIT));
+            s.setWarnMillis(readOptional(rec + R_WARN));
+            speakers.add(s);
+            records.put(s.getId(), rec);
+        }
+        return new StoredState(StoredState.VERSION,
+                buf.get(H_AUTO_STOP) != 0,
+                readString(strings, H_TITLE),
+                buf.getInt(H_CARD_WIDTH),
+                buf.getInt(H_TEXT_SCALE),
+                buf.getInt(H_ACTION_SIZE),
+                buf.getInt(H_CARD_WIDTH_MAIN),
+                buf.getInt(H_TEXT_SCALE_MAIN),
+                buf.getLong(H_DEFAULT_LIMIT),
+                buf.getLong(H_DEFAULT_WARN),
+                readString(strings, H_LIMIT_ACTION),
+                speakers);
+    }
+
+    @Override
+    public void save(StoredState state) throws IOException {
+        List<Speaker> speakers = state.speakers();
+        int count = speakers.size();
+        int strings = HEADER_SIZE + count * RECORD_SIZE;
+        // encode the side area first to know the size needed
+        byte[][] encoded = new byte[count * 4 + 2][];
+        int length = 0;
+        int e = 0;
+        encoded[e++] = utf8(state.title());
+        encoded[e++] = utf8(state.limitAction());
+        for (Speaker s : speakers) {
+            encoded[e++] = utf8(s.getId());
+            encoded[e++] = utf8(s.getName());
+            encoded[e++] = utf8(s.getFaceUrl());
+            encoded[e++] = utf8(s.getImageFilename());
+        }
+        for (byte[] b : encoded) {
+            length += b == null ? 0 : b.length;
+        }
+        long needed = (long) strings + length;
+        if (buf == null || buf.capacity() < needed) {
+            map(Math.max(MIN_SIZE, needed * 2));
+        }
+
+        int[] cursor = {strings};
+        e = 0;
+        buf.putInt(H_MAGIC, MAGIC);
+        buf.putInt(H_FORMAT, FORMAT);
+        buf.putInt(H_COUNT, count);
+        buf.putInt(H_STRINGS_OFFSET, strings);
+        buf.putInt(H_STRINGS_LENGTH, length);
+        buf.put(H_AUTO_STOP, (byte) (Boolean.TRUE.equals(state.autoStopOnStart()) ? 1 : 0));
+        buf.putInt(H_CARD_WIDTH, orZero(state.uiCardWidth()));
+        buf.putInt(H_TEXT_SCALE, orZero(state.uiTextScale()));
+        buf.putInt(H_ACTION_SIZE, orZero(state.uiActionSize()));
+        buf.putInt(H_CARD_WIDTH_MAIN, orZero(state.uiCardWidthMain()));
+        buf.putInt(H_TEXT_SCALE_MAIN, orZero(state.uiTextScaleMain()));
+        buf.putLong(H_DEFAULT_LIMIT, state.defaultLimitMillis() == null ? 0L : state.defaultLimitMillis());
+        buf.putLong(H_DEFAULT_WARN, state.defaultWarnMillis() == null ? 0L : state.defaultWarnMillis());
+        writeString(H_TITLE, encoded[e++], cursor, strings);
+        writeString(H_LIMIT_ACTION, encoded[e++], cursor, strings);
+        records.clear();
+        int rec = HEADER_SIZE;
+        for (Speaker s : speakers) {
+            buf.putLong(rec + R_ELAPSED, s.getElapsedMillis());
+            buf.putLong(rec + R_LIMIT, s.getLimitMillis() == null ? NONE : s.getLimitMillis());
+            buf.putLong(rec + R_WARN, s.getWarnMillis() == null ? NONE : s.getWarnMillis());
+            buf.put(rec + R_RUNNING, (byte) (s.isRunning() ? 1 : 0));
+            writeString(rec + R_ID, encoded[e++], cursor, strings);
+            writeString(rec + R_NAME, encoded[e++], cursor, strings);
+            writeString(rec + R_FACE_URL, encoded[e++], cursor, strings);
+            writeString(rec + R_IMAGE, encoded[e++], cursor, strings);
+            records.put(s.getId(), rec);
+            rec += RECORD_SIZE;
+        }
+    }
+
+    @Override
+    public boolean writesTimersInPlace() {
+        return true;
+    }
+
+    @Override
+    public void saveTimer(String id, long elapsedMillis, boolean running) {
+        Integer rec = records.get(id);
+        if (rec != null) {
+            buf.putLong(rec + R_ELAPSED, elapsedMillis);
+            buf.put(rec + R_RUNNING, (byte) (running ? 1 : 0));
+        }
+    }
+
+    private void map(long size) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // mapping past the end grows the file; the previous buffer stays valid until collected
+            buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, ch.size()));
+        }
+    }
+
+    private String readString(int strings, int ref) {
+        int len = buf.getInt(ref + 4);
+        if (len < 0) {
+            return null;
+        }
+        byte[] b = new byte[len];
+        buf.get(strings + buf.getInt(ref), b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private void writeString(int ref, byte[] b, int[] cursor, int strings) {
+        if (b == null) {
+            buf.putInt(ref, 0);
+            buf.putInt(ref + 4, -1);
+            return;
+        }
+        buf.putInt(ref, cursor[0] - strings);
+        buf.putInt(ref + 4, b.length);
+        buf.put(cursor[0], b);
+        cursor[0] += b.length;
+    }
+
+    private Long readOptional(int at) {
+        long v = buf.getLong(at);
+        return v == NONE ? null : v;
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int orZero(Integer v) {
+        return v == null ? 0 : v;
+    }
+}
@@ -0,0 +1,56 @@
+package com.lopixlabs.polichrono.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Picks the {@link SpeakerRepository} from {@code chrono.storage}: {@code json} (default, {@code speakers.file})
+ * or {@code mapped} ({@code chrono.storage.mapped-file}). The first start with {@code mapped} imports an existing
+ * JSON file.
+ */
+@ApplicationScoped
+public class RepositoryProducer {
+
+    private static final Logger LOG = Logger.getLogger(RepositoryProducer.class);
+
+    @ConfigProperty(name = "chrono.storage", defaultValue = "json")
+    String storage;
+    @ConfigProperty(name = "speakers.file", defaultValue = "./data/speakers.json")
+    String filePath;
+    @ConfigProperty(name = "chrono.storage.mapped-file", defaultValue = "./data/speakers.bin")
+    String mappedFile;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Produces
+    @Singleton
+    SpeakerRepository repository() {
+        JsonFileRepository json = new JsonFileRepository(Path.of(filePath), mapper.getFactory());
+        if (!"mapped".equalsIgnoreCase(storage)) {
+            return json;
+        }
+        MappedFileRepository mapped = new MappedFileRepository(Path.of(mappedFile));
+        if (!mapped.exists()) {
+            try {
+                StoredState legacy = json.load();
+                if (legacy != null) {
+                    mapped.save(legacy);
+                    LOG.infof("Imported %s into %s", filePath, mappedFile);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot import " + filePath, e);
+            }
+        }
+        return mapped;
+    }
+}
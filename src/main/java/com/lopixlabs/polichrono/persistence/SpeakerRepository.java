@@ -0,0 +1,34 @@
+package com.lopixlabs.polichrono.persistence;
+
+import java.io.IOException;
+
+/**
+ * Where {@code SpeakerStore} keeps its state between runs. Selected with {@code chrono.storage}
+ * (see {@link RepositoryProducer}).
+ */
+public interface SpeakerRepository {
+
+    /**
+     * @return the saved state, or null when nothing has been saved yet
+     */
+    StoredState load() throws IOException;
+
+    /**
+     * Replaces the saved state.
+     */
+    void save(StoredState state) throws IOException;
+
+    /**
+     * Whether {@link #saveTimer} persists a timer change on its own. When false, the store saves the whole
+     * state after every start and stop instead.
+     */
+    default boolean writesTimersInPlace() {
+        return false;
+    }
+
+    /**
+     * Records one speaker's timer as of now, for a speaker present in the last {@link #save}.
+     */
+    default void saveTimer(String id, long elapsedMillis, boolean running) {
+    }
+}
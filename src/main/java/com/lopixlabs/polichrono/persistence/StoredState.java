@@ -0,0 +1,27 @@
+package com.lopixlabs.polichrono.persistence;
+
+import com.lopixlabs.polichrono.model.Speaker;
+
+import java.util.List;
+
+/**
+ * Everything {@code SpeakerStore} saves: app properties plus speakers in roster order. Settings missing from an
+ * older file are null and fall back to the configured defaults. The JSON form is the {@code speakers.json}
+ * file format and the replication snapshot.
+ */
+public record StoredState(
+        int version,
+        Boolean autoStopOnStart,
+        String title,
+        Integer uiCardWidth,
+        Integer uiTextScale,
+        Integer uiActionSize,
+        Integer uiCardWidthMain,
+        Integer uiTextScaleMain,
+        Long defaultLimitMillis,
+        Long defaultWarnMillis,
+        String limitAction,
+        List<Speaker> speakers) {
+
+    public static final int VERSION = 1;
+}
@@ -0,0 +1,355 @@
+package com.lopixlabs.polichrono.relay;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.lopixlabs.polichrono.ws.ChronoWebSocket;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.WebSocketClient;
+import io.vertx.core.http.WebSocketClientOptions;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Read-only relay: connects to an upstream {@code /ws} (a primary, a follower or another relay) as a single
+ * client, caches the latest state and control frames and re-broadcasts them to the local {@link ChronoWebSocket}
+ * connections. Speaker images are fetched once from upstream and served from a local cache.
+ * <p>
+ * Local clients stay connected while upstream is down. After a reconnect the upstream's initial frames are
+ * compared with the cache and only the ones that changed are re-broadcast, so nothing reloads.
+ */
+@ApplicationScoped
+public class RelayClient {
+
+    private static final Logger LOG = Logger.getLogger(RelayClient.class);
+    private static final String STATE = "state";
+
+    // initial frames in the order ChronoWebSocket sends them on open
+    private static final List<String> INITIAL_FRAMES = List.of(STATE, "autoStop", "title", "size", "sizeMain", "limits");
+    // one-off events: forwarded as they come, never cached nor deduplicated
+    private static final Set<String> TRANSIENT_FRAMES = Set.of("reload", "alert");
+
+    @ConfigProperty(name = "chrono.relay.upstream-host")
+    Optional<String> upstreamHost;
+    @ConfigProperty(name = "chrono.relay.upstream-port", defaultValue = "8080")
+    int upstreamPort;
+    @ConfigProperty(name = "chrono.relay.image-cache-dir", defaultValue = "./data/relay-cache")
+    String imageCacheDir;
+
+    @Inject
+    ChronoWebSocket ws;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    Vertx vertx;
+
+    // latest frame per message type, exactly as received from upstream
+    private final Map<String, String> frames = new ConcurrentHashMap<>();
+    // speaker id -> image filename, from the latest state frame
+    private final Map<String, String> imageFilenames = new ConcurrentHashMap<>();
+    // speaker id -> cached file being fetched from upstream, so concurrent misses share one request
+    private final Map<String, Future<String>> imageFetches = new ConcurrentHashMap<>();
+    // broadcasts block, keep them off the event loop and in upstream order
+    private final ExecutorService broadcaster = Executors.newSingleThreadExecutor(
+            r -> Thread.ofPlatform().daemon().name("relay-broadcast").unstarted(r));
+    private HttpClient client;
+    private WebSocketClient wsClient;
+    private volatile boolean running;
+
+    public boolean isRelay() {
+        return upstreamHost.filter(h -> !h.isBlank()).isPresent();
+    }
+
+    /**
+     * Cached frames to send to a newly opened local connection.
+     */
+    public List<String> initialFrames() {
+        List<String> out = new ArrayList<>();
+        for (String type : INITIAL_FRAMES) {
+            String f = frames.get(type);
+            if (f != null) {
+                out.add(f);
+            }
+        }
+        return out;
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!isRelay()) {
+            return;
+        }
+        running = true;
+        // files left by an earlier run may be stale; image file names change with their content, so within a
+        // run a cached name never needs revalidating
+        if (vertx.fileSystem().existsBlocking(imageCacheDir)) {
+            vertx.fileSystem().deleteRecursiveBlocking(imageCacheDir);
+        }
+        vertx.fileSystem().mkdirsBlocking(imageCacheDir);
+        connect();
+    }
+
+    void onShutdown(@Observes ShutdownEvent ev) {
+        running = false;
+        broadcaster.shutdownNow();
+        if (client != null) {
+            client.close();
+        }
+        if (wsClient != null) {
+            wsClient.close();
+        }
+    }
+
+    void installRoutes(@Observes Router router) {
+        if (!isRelay()) {
+            return;
+        }
+        client = vertx.createHttpClient(new HttpClientOptions());
+        wsClient = vertx.createWebSocketClient(new WebSocketClientOptions().setMaxMessageSize(16 * 1024 * 1024));
+        router.get("/api/speakers/:id/image").order(-10).handler(this::serveImage);
+        router.get("/api/speakers").order(-10).handler(this::serveRoster);
+        // settings, history and exports live upstream (clients get settings over /ws); the local store is empty
+        router.route("/api/*").order(-9).handler(rc -> {
+            if (HttpMethod.GET.equals(rc.request().method()) && rc.request().path().startsWith("/api/metrics/")) {
+                rc.next();
+            } else {
+                rc.response().setStatusCode(403).end("Read-only relay");
+            }
+        });
+    }
+
+    // the cached state, or one page of it with the same cursor/limit/q semantics as SpeakersResource
+    private void serveRoster(RoutingContext rc) {
+        String state = frames.getOrDefault(STATE, "[]");
+        String cursor = rc.queryParams().get("cursor");
+        String limit = rc.queryParams().get("limit");
+        String q = rc.queryParams().get("q");
+        if (cursor == null && limit == null && q == null) {
+            rc.response().putHeader(HttpHeaders.CONTENT_TYPE, "application/json").end(state);
+            return;
+        }
+        int size;
+        JsonNode roster;
+        try {
+            size = limit == null ? 100 : Math.max(1, Math.min(1000, Integer.parseInt(limit.trim())));
+            roster = mapper.readTree(state);
+        } catch (Exception e) {
+            rc.response().setStatusCode(400).end("Invalid limit");
+            return;
+        }
+        int i = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            while (i < roster.size() && !cursor.equals(roster.get(i).path("id").asText())) {
+                i++;
+            }
+            if (i == roster.size()) {
+                rc.response().setStatusCode(410).end("Unknown cursor " + cursor + ", start again without one");
+                return;
+            }
+            i++;
+        }
+        String query = q == null || q.isBlank() ? null : q.trim().toLowerCase(Locale.ROOT);
+        ArrayNode items = mapper.createArrayNode();
+        String last = null;
+        for (; i < roster.size() && items.size() < size; i++) {
+            JsonNode sp = roster.get(i);
+            if (matches(sp, query)) {
+                items.add(sp);
+                last = sp.path("id").asText();
+            }
+        }
+        // more only if a further match exists
+        while (i < roster.size() && !matches(roster.get(i), query)) {
+            i++;
+        }
+        if (i < roster.size()) {
+            rc.response().putHeader("X-Next-Cursor", last);
+        }
+        rc.response().putHeader(HttpHeaders.CONTENT_TYPE, "application/json").end(items.toString());
+    }
+
+    private static boolean matches(JsonNode speaker, String lowerQuery) {
+        return lowerQuery == null || speaker.path("name").asText("").toLowerCase(Locale.ROOT).contains(lowerQuery);
+    }
+
+    private void connect() {
+        if (!running) {
+            return;
+        }
+        wsClient.connect(upstreamPort, upstreamHost.get(), "/ws")
+                .onSuccess(socket -> {
+                    LOG.infof("Relay connected to upstream %s:%d", upstreamHost.get(), upstreamPort);
+                    socket.textMessageHandler(this::onUpstreamFrame);
+                    socket.closeHandler(v -> reconnectLater());
+                    socket.exceptionHandler(err -> socket.close());
+                })
+                .onFailure(err -> {
+                    LOG.debugf("Relay upstream unavailable: %s", err.getMessage());
+                    reconnectLater();
+                });
+    }
+
+    private void reconnectLater() {
+        if (running) {
+            vertx.setTimer(1000, id -> connect());
+        }
+    }
+
+    private void onUpstreamFrame(String frame) {
+        JsonNode node;
+        try {
+            node = mapper.readTree(frame);
+        } catch (Exception e) {
+            return;
+        }
+        String type = node.isArray() ? STATE : node.path("type").asText("");
+        if ("init".equals(type)) {
+            // initial frames bundled by upstream on connect: handle each as if sent on its own
+            for (String f : splitInit(frame)) {
+                onUpstreamFrame(f);
+            }
+            return;
+        }
+        if ("reload".equals(type)) {
+            // explicit admin request: drop cached images so the audience sees fresh ones, and spread the
+            // local clients' reloads over the window upstream asked for
+            clearImageCache();
+            long window = node.path("windowMs").asLong(0);
+            broadcaster.execute(() -> ws.broadcastReload(window));
+            return;
+        } else if (!TRANSIENT_FRAMES.contains(type) && frame.equals(frames.put(type, frame))) {
+            // unchanged (typically the initial frames after an upstream reconnect)
+            return;
+        }
+        if (node.isArray()) {
+            indexImages(node);
+        }
+        broadcaster.execute(() -> ws.broadcastRaw(frame));
+    }
+
+    // the elements of an init frame's "frames" array, as the exact text upstream encoded them
+    private List<String> splitInit(String frame) {
+        List<String> out = new ArrayList<>();
+        try (JsonParser p = mapper.getFactory().createParser(frame)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return out;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                if (p.nextToken() != JsonToken.START_ARRAY || !"frames".equals(field)) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    int start = (int) p.currentTokenLocation().getCharOffset();
+                    p.skipChildren();
+                    out.add(frame.substring(start, (int) p.currentLocation().getCharOffset()));
+                }
+            }
+        } catch (IOException e) {
+            LOG.debugf("Malformed init frame from upstream: %s", e.getMessage());
+        }
+        return out;
+    }
+
+    private void indexImages(JsonNode state) {
+        Map<String, String> seen = new HashMap<>();
+        for (JsonNode sp : state) {
+            String id = sp.path("id").asText(null);
+            String filename = sp.path("imageFilename").asText(null);
+            if (id != null && filename != null) {
+                seen.put(id, filename);
+            }
+        }
+        // forget images that were removed or replaced upstream
+        for (Map.Entry<String, String> e : imageFilenames.entrySet()) {
+            if (!e.getValue().equals(seen.get(e.getKey()))) {
+                evictImage(e.getKey(), e.getValue());
+            }
+        }
+        imageFilenames.putAll(seen);
+    }
+
+    // drops the cached files only: the next state frame is usually unchanged and not re-indexed, so the
+    // id -> filename index must survive for the images to be fetched again
+    private void clearImageCache() {
+        for (Map.Entry<String, String> e : imageFilenames.entrySet()) {
+            deleteCached(e.getKey(), e.getValue());
+        }
+    }
+
+    private void evictImage(String id, String filename) {
+        imageFilenames.remove(id, filename);
+        deleteCached(id, filename);
+    }
+
+    private void deleteCached(String id, String filename) {
+        imageFetches.remove(id);
+        vertx.fileSystem().delete(cachePath(filename)).onFailure(err -> {
+            // not cached yet
+        });
+    }
+
+    private void serveImage(RoutingContext rc) {
+        String id = rc.pathParam("id");
+        String filename = imageFilenames.get(id);
+        if (filename == null) {
+            rc.response().setStatusCode(404).end();
+            return;
+        }
+        imageFetches.computeIfAbsent(id, k -> fetchImage(k, filename))
+                .onSuccess(path -> rc.response().sendFile(path))
+                .onFailure(err -> {
+                    imageFetches.remove(id);
+                    rc.response().setStatusCode(404).end();
+                });
+    }
+
+    private Future<String> fetchImage(String id, String filename) {
+        String path = cachePath(filename);
+        return vertx.fileSystem().exists(path).compose(exists -> {
+            if (exists) {
+                return Future.succeededFuture(path);
+            }
+            return client.request(HttpMethod.GET, upstreamPort, upstreamHost.get(), "/api/speakers/" + id + "/image")
+                    .compose(req -> req.send())
+                    .compose(resp -> resp.statusCode() == 200
+                            ? resp.body()
+                            : Future.failedFuture("upstream returned " + resp.statusCode()))
+                    .compose(body -> vertx.fileSystem().writeFile(path, body))
+                    .map(v -> path);
+        });
+    }
+
+    private String cachePath(String filename) {
+        return Path.of(imageCacheDir).resolve(Path.of(filename).getFileName()).toString();
+    }
+}
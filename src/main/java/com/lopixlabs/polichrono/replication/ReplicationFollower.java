@@ -0,0 +1,190 @@
+package com.lopixlabs.polichrono.replication;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lopixlabs.polichrono.codec.StateCodec;
+import com.lopixlabs.polichrono.service.SpeakerStore;
+import com.lopixlabs.polichrono.ws.ChronoWebSocket;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Follower side of replication: keeps a read-only copy of the primary's store, re-broadcasts it to the
+ * local {@code /ws} clients and forwards every mutating REST call to the primary.
+ */
+@ApplicationScoped
+public class ReplicationFollower {
+
+    private static final Logger LOG = Logger.getLogger(ReplicationFollower.class);
+
+    @ConfigProperty(name = "chrono.replication.role", defaultValue = "standalone")
+    String role;
+    @ConfigProperty(name = "chrono.replication.primary-host", defaultValue = "localhost")
+    String primaryHost;
+    @ConfigProperty(name = "chrono.replication.primary-port", defaultValue = "9700")
+    int primaryPort;
+    @ConfigProperty(name = "chrono.replication.primary-http-port", defaultValue = "8080")
+    int primaryHttpPort;
+
+    @Inject
+    SpeakerStore store;
+
+    @Inject
+    ChronoWebSocket ws;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    Vertx vertx;
+
+    private volatile boolean running;
+    private volatile Socket socket;
+    private HttpClient forwardClient;
+
+    public boolean isFollower() {
+        return "follower".equalsIgnoreCase(role);
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!isFollower()) {
+            return;
+        }
+        running = true;
+        Thread.ofPlatform().daemon().name("replication-follower").start(this::followLoop);
+    }
+
+    void onShutdown(@Observes ShutdownEvent ev) {
+        running = false;
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+        }
+        if (forwardClient != null) {
+            forwardClient.close();
+        }
+    }
+
+    void installForwarding(@Observes Router router) {
+        if (!isFollower()) {
+            return;
+        }
+        forwardClient = vertx.createHttpClient();
+        router.route("/api/*").order(-10).handler(this::forward);
+    }
+
+    private void followLoop() {
+        while (running) {
+            try (Socket s = new Socket(primaryHost, primaryPort)) {
+                socket = s;
+                s.setKeepAlive(true);
+                BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                LOG.infof("Connected to replication primary %s:%d", primaryHost, primaryPort);
+                long lastSeq = -1;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lastSeq = apply(mapper.readTree(line), lastSeq);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    LOG.debugf("Replication link down: %s", e.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long apply(JsonNode event, long lastSeq) throws IOException {
+        long seq = event.path("seq").asLong();
+        String kind = event.path("kind").asText();
+        // gaps are superseded snapshots the primary skipped; reconnecting always starts from a fresh snapshot
+        if (lastSeq < 0 ? !"snapshot".equals(kind) : seq <= lastSeq) {
+            throw new IOException("Replication stream out of order at " + seq + " after " + lastSeq);
+        }
+        if ("snapshot".equals(kind)) {
+            store.applySnapshot(StateCodec.readState(mapper.treeAsTokens(event.get("state"))));
+            ws.broadcastAll();
+        } else if ("frame".equals(kind)) {
+            String payload = event.path("payload").asText();
+            JsonNode frame = mapper.readTree(payload);
+            if ("reload".equals(frame.path("type").asText())) {
+                // the primary only says how long to spread reloads over; we pick our own clients' moments
+                ws.broadcastReload(frame.path("windowMs").asLong(0));
+            } else {
+                ws.broadcastRaw(payload);
+            }
+        }
+        return seq;
+    }
+
+    /**
+     * Sends a history command received on {@code /ws} ({@code undo} or {@code redo}) to the primary, like the
+     * REST call would be forwarded; the result comes back through replication.
+     */
+    public void forwardHistory(String command) {
+        forwardClient.request(HttpMethod.POST, primaryHttpPort, primaryHost, "/api/speakers/" + command)
+                .compose(req -> req.send())
+                .onFailure(err -> LOG.warnf("Cannot forward %s to the primary: %s", command, err.getMessage()));
+    }
+
+    private void forward(RoutingContext rc) {
+        HttpServerRequest req = rc.request();
+        HttpMethod method = req.method();
+        boolean readOnly = HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method);
+        // images live on the primary's disk and undo history in its memory (a follower's is reset by every
+        // snapshot); everything else readable is served from the replicated copy
+        if (readOnly && !req.path().endsWith("/image") && !req.path().endsWith("/history")) {
+            rc.next();
+            return;
+        }
+        // Quarkus pauses requests until a handler consumes them
+        req.resume();
+        req.body()
+                .compose(body -> forwardClient.request(method, primaryHttpPort, primaryHost, req.uri())
+                        .compose(out -> {
+                            String ct = req.getHeader(HttpHeaders.CONTENT_TYPE);
+                            if (ct != null) {
+                                out.putHeader(HttpHeaders.CONTENT_TYPE, ct);
+                            }
+                            return out.send(body);
+                        }))
+                .compose(resp -> resp.body().onSuccess(b -> {
+                    String ct = resp.getHeader(HttpHeaders.CONTENT_TYPE);
+                    if (ct != null) {
+                        rc.response().putHeader(HttpHeaders.CONTENT_TYPE, ct);
+                    }
+                    rc.response().setStatusCode(resp.statusCode()).end(b);
+                }))
+                .onFailure(err -> {
+                    if (!rc.response().ended()) {
+                        rc.response().setStatusCode(502).end("Replication primary unavailable");
+                    }
+                });
+    }
+}
@@ -0,0 +1,256 @@
+package com.lopixlabs.polichrono.replication;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lopixlabs.polichrono.codec.StateCodec;
+import com.lopixlabs.polichrono.persistence.StoredState;
+import com.lopixlabs.polichrono.service.SpeakerStore;
+import com.lopixlabs.polichrono.service.StateChanged;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Primary side of replication: accepts follower connections over TCP and streams ordered state events
+ * as newline-delimited JSON.
+ * <p>
+ * Every event carries a sequence number. A follower that connects receives the current snapshot tagged
+ * with the current sequence and then every later event, so joining late is just a normal catch-up.
+ * Mutations are conflated: several store changes in a row produce a single snapshot event, and a follower
+ * that falls behind keeps at most one pending snapshot (a newer one replaces it), so a slow follower costs one
+ * roster's worth of memory, not one per mutation. Sequence numbers therefore only increase; skipped ones
+ * belong to superseded snapshots.
+ */
+@ApplicationScoped
+public class ReplicationPrimary {
+
+    private static final Logger LOG = Logger.getLogger(ReplicationPrimary.class);
+
+    @ConfigProperty(name = "chrono.replication.role", defaultValue = "standalone")
+    String role;
+    @ConfigProperty(name = "chrono.replication.port", defaultValue = "9700")
+    int port;
+    // events buffered per follower before it is considered too slow and disconnected
+    @ConfigProperty(name = "chrono.replication.queue-size", defaultValue = "1024")
+    int queueSize;
+
+    @Inject
+    SpeakerStore store;
+
+    @Inject
+    ObjectMapper mapper;
+
+    private final Set<FollowerLink> followers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(
+            r -> Thread.ofPlatform().daemon().name("replication-publisher").unstarted(r));
+    // guarded by this; lock order is always this -> store
+    private long seq;
+    private volatile ServerSocket server;
+
+    public boolean isPrimary() {
+        return "primary".equalsIgnoreCase(role);
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!isPrimary()) {
+            return;
+        }
+        try {
+            server = new ServerSocket(port);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot listen for followers on port " + port, e);
+        }
+        LOG.infof("Replication primary listening on port %d", port);
+        Thread.ofPlatform().daemon().name("replication-accept").start(this::acceptLoop);
+    }
+
+    void onShutdown(@Observes ShutdownEvent ev) {
+        publisher.shutdownNow();
+        ServerSocket s = server;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+        }
+        for (FollowerLink f : followers) {
+            f.close();
+        }
+    }
+
+    void onStateChanged(@Observes StateChanged ev) {
+        // called while the store holds its lock: only schedule, never build the snapshot here
+        if (isPrimary() && snapshotPending.compareAndSet(false, true)) {
+            publisher.execute(this::publishSnapshot);
+        }
+    }
+
+    /**
+     * Replicates a raw WebSocket frame (e.g. {@code reload}) so followers re-broadcast it to their clients.
+     */
+    public void publishFrame(String frame) {
+        if (!isPrimary()) {
+            return;
+        }
+        synchronized (this) {
+            long eventSeq = ++seq;
+            send(encode(eventSeq, "frame", g -> g.writeStringField("payload", frame)), false);
+        }
+    }
+
+    private void publishSnapshot() {
+        snapshotPending.set(false);
+        synchronized (this) {
+            long eventSeq = ++seq;
+            if (!followers.isEmpty()) {
+                send(snapshotEvent(eventSeq), true);
+            }
+        }
+    }
+
+    private String snapshotEvent(long eventSeq) {
+        StoredState state = store.snapshot();
+        return encode(eventSeq, "snapshot", g -> {
+            g.writeFieldName("state");
+            StateCodec.writeState(g, state);
+        });
+    }
+
+    // one NDJSON line: {"seq":..,"kind":..,<body>}
+    private String encode(long eventSeq, String kind, EventBody body) {
+        StringWriter out = new StringWriter(256);
+        try (JsonGenerator g = mapper.getFactory().createGenerator(out)) {
+            g.writeStartObject();
+            g.writeNumberField("seq", eventSeq);
+            g.writeStringField("kind", kind);
+            body.write(g);
+            g.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode replication event", e);
+        }
+        return out.toString();
+    }
+
+    private interface EventBody {
+        void write(JsonGenerator g) throws IOException;
+    }
+
+    private void send(String line, boolean snapshot) {
+        if (followers.isEmpty()) {
+            return;
+        }
+        for (FollowerLink f : followers) {
+            if (!f.offer(line, snapshot)) {
+                // too far behind: drop it, it will reconnect and catch up from a fresh snapshot
+                LOG.warnf("Dropping slow follower %s", f.remote());
+                f.close();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        ServerSocket s = server;
+        while (!s.isClosed()) {
+            try {
+                register(s.accept());
+            } catch (IOException e) {
+                if (!s.isClosed()) {
+                    LOG.warn("Failed to accept follower", e);
+                }
+            }
+        }
+    }
+
+    private synchronized void register(Socket socket) throws IOException {
+        socket.setKeepAlive(true);
+        socket.setTcpNoDelay(true);
+        FollowerLink link = new FollowerLink(socket, queueSize);
+        // catch-up: snapshot tagged with the current sequence, live events continue from seq + 1
+        link.offer(snapshotEvent(seq), true);
+        followers.add(link);
+        link.start();
+        LOG.infof("Follower %s joined at sequence %d", link.remote(), seq);
+    }
+
+    private record Event(String line, boolean snapshot) {
+    }
+
+    private final class FollowerLink {
+        private final Socket socket;
+        private final BlockingQueue<Event> queue;
+        private final BufferedWriter out;
+        private volatile Thread writer;
+
+        FollowerLink(Socket socket, int capacity) throws IOException {
+            this.socket = socket;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        String remote() {
+            return String.valueOf(socket.getRemoteSocketAddress());
+        }
+
+        // called under the primary's lock, so offers never race each other
+        boolean offer(String line, boolean snapshot) {
+            if (snapshot) {
+                // a snapshot replaces the whole state: any older one still waiting is pointless
+                queue.removeIf(Event::snapshot);
+            }
+            return queue.offer(new Event(line, snapshot));
+        }
+
+        void start() {
+            writer = Thread.ofPlatform().daemon().name("replication-" + remote()).start(this::writeLoop);
+        }
+
+        private void writeLoop() {
+            try {
+                while (!socket.isClosed()) {
+                    out.write(queue.take().line());
+                    out.write('\n');
+                    if (queue.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                LOG.infof("Follower %s disconnected", remote());
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            followers.remove(this);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            Thread w = writer;
+            if (w != null && w != Thread.currentThread()) {
+                w.interrupt();
+            }
+        }
+    }
+}
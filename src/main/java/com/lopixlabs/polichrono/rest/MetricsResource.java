@@ -0,0 +1,34 @@
+package com.lopixlabs.polichrono.rest;
+
+import com.lopixlabs.polichrono.ws.ChronoWebSocket;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.Map;
+
+@Path("/api/metrics")
+@Produces(MediaType.APPLICATION_JSON)
+@RequestScoped
+public class MetricsResource {
+
+    @Inject
+    ChronoWebSocket ws;
+
+    // WebSocket admission: admitted/rejected/queued connections and time-to-first-frame percentiles
+    @GET
+    @Path("/ws")
+    public Map<String, Object> ws() {
+        return ws.admissionMetrics();
+    }
+
+    // broadcast fan-out: total time and, per event loop, connections, wait for the loop and write time
+    @GET
+    @Path("/broadcast")
+    public Map<String, Object> broadcast() {
+        return ws.broadcastMetrics();
+    }
+}
@@ -1,6 +1,8 @@
 package com.lopixlabs.polichrono.rest;
 
 import com.lopixlabs.polichrono.model.Speaker;
+import com.lopixlabs.polichrono.model.SpeakerPage;
+import com.lopixlabs.polichrono.service.RosterTransfer;
 import com.lopixlabs.polichrono.service.SpeakerStore;
 import com.lopixlabs.polichrono.ws.ChronoWebSocket;
 import jakarta.enterprise.context.RequestScoped;
@@ -8,11 +10,13 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.util.List;
 import java.util.Map;
@@ -29,12 +33,34 @@ public class SpeakersResource {
     @Inject
     ChronoWebSocket ws;
 
+    @Inject
+    RosterTransfer transfer;
+
     @ConfigProperty(name = "images.dir", defaultValue = "./data/images")
     String imagesDir;
 
+    // full roster by default; with cursor/limit/q a page is returned and X-Next-Cursor points to the next one
     @GET
-    public List<Speaker> list() {
-        return store.list();
+    public Response list(@QueryParam("cursor") String cursor,
+                         @QueryParam("limit") Integer limit,
+                         @QueryParam("q") String q) {
+        if (cursor == null && limit == null && q == null) {
+            // same array the WebSocket sends, already encoded
+            return Response.ok(store.stateJson()).build();
+        }
+        int size = limit == null ? 100 : Math.max(1, Math.min(1000, limit));
+        SpeakerPage page;
+        try {
+            page = store.page(cursor, size, q);
+        } catch (IllegalArgumentException e) {
+            // the cursor speaker was deleted: the client must restart rather than silently stop early
+            return Response.status(Response.Status.GONE).type(MediaType.TEXT_PLAIN).entity(e.getMessage()).build();
+        }
+        Response.ResponseBuilder rb = Response.ok(page.items());
+        if (page.nextCursor() != null) {
+            rb.header("X-Next-Cursor", page.nextCursor());
+        }
+        return rb.build();
     }
 
     @POST
@@ -130,6 +156,141 @@ public class SpeakersResource {
         return Map.of("title", store.getTitle());
     }
 
+    @GET
+    @Path("/limits")
+    public Map<String, Object> getLimits() {
+        return Map.of(
+                "limitMillis", store.getDefaultLimitMillis(),
+                "warnMillis", store.getDefaultWarnMillis(),
+                "action", store.getLimitAction()
+        );
+    }
+
+    @POST
+    @Path("/limits")
+    public Map<String, Object> setLimits(Map<String, Object> payload) {
+        long limit = store.getDefaultLimitMillis();
+        long warn = store.getDefaultWarnMillis();
+        Object l = payload.get("limitMillis");
+        Object w = payload.get("warnMillis");
+        if (l != null) {
+            try { limit = Long.parseLong(String.valueOf(l)); } catch (Exception ignored) {}
+        }
+        if (w != null) {
+            try { warn = Long.parseLong(String.valueOf(w)); } catch (Exception ignored) {}
+        }
+        Object a = payload.get("action");
+        store.setDefaultLimits(limit, warn, a == null ? store.getLimitAction() : String.valueOf(a));
+        ws.broadcastLimits();
+        return getLimits();
+    }
+
+    // per-speaker limit; missing or null values fall back to the defaults
+    @PUT
+    @Path("/{id}/limit")
+    public Speaker setLimit(@PathParam("id") String id, Map<String, Object> payload) {
+        Speaker s = store.setLimit(id, parseLongOrNull(payload.get("limitMillis")), parseLongOrNull(payload.get("warnMillis")));
+        ws.broadcastState();
+        return s;
+    }
+
+    private static Long parseLongOrNull(Object v) {
+        try {
+            return v == null || String.valueOf(v).isBlank() ? null : Long.parseLong(String.valueOf(v));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Integer parseIntOrNull(Object v) {
+        try {
+            return v == null ? null : Integer.parseInt(String.valueOf(v));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // move one speaker before another ({"beforeId": null} moves it to the end)
+    @POST
+    @Path("/{id}/move")
+    public Response move(@PathParam("id") String id, Map<String, Object> payload) {
+        Object before = payload == null ? null : payload.get("beforeId");
+        store.move(id, before == null ? null : String.valueOf(before));
+        ws.broadcastState();
+        return Response.ok().build();
+    }
+
+    // bulk import: one persist and one broadcast for the whole file; replace=true drops speakers not in it
+    @POST
+    @Path("/import")
+    @Consumes({"text/csv", "text/plain", "application/x-ndjson", "application/zip", "application/octet-stream"})
+    public Map<String, Object> importRoster(@HeaderParam("Content-Type") String contentType,
+                                            @QueryParam("format") String format,
+                                            @QueryParam("replace") boolean replace,
+                                            InputStream body) {
+        String f = format != null ? format.toLowerCase() : switch (contentType == null ? "" : contentType.toLowerCase().split(";")[0].trim()) {
+            case "application/x-ndjson" -> "ndjson";
+            case "application/zip", "application/octet-stream" -> "zip";
+            default -> "csv";
+        };
+        int imported;
+        try {
+            imported = switch (f) {
+                case "csv" -> transfer.importCsv(body, replace);
+                case "ndjson", "jsonl" -> transfer.importNdjson(body, replace);
+                case "zip" -> transfer.importZip(body, replace);
+                default -> throw new BadRequestException("Unknown format: " + f);
+            };
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            ws.broadcastState();
+            throw new BadRequestException(e.getMessage());
+        } catch (IOException e) {
+            ws.broadcastState();
+            throw new BadRequestException("Failed to read import: " + e.getMessage());
+        }
+        ws.broadcastState();
+        return Map.of("imported", imported);
+    }
+
+    @GET
+    @Path("/export")
+    @Produces({"text/csv", "application/x-ndjson"})
+    public Response exportRoster(@QueryParam("format") String format) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format) || "jsonl".equalsIgnoreCase(format);
+        StreamingOutput out = ndjson ? transfer::exportNdjson : transfer::exportCsv;
+        return Response.ok(out)
+                .type(ndjson ? "application/x-ndjson" : "text/csv")
+                .header("Content-Disposition", "attachment; filename=\"speakers." + (ndjson ? "ndjson" : "csv") + "\"")
+                .build();
+    }
+
+    // undo/redo the last change (roster, timers, limits, settings); 409 when there is nothing to undo or redo
+    @POST
+    @Path("/undo")
+    public Response undo() {
+        return historyResult(store.undo());
+    }
+
+    @POST
+    @Path("/redo")
+    public Response redo() {
+        return historyResult(store.redo());
+    }
+
+    @GET
+    @Path("/history")
+    public Map<String, Object> history() {
+        return Map.of("undo", store.undoCount(), "redo", store.redoCount());
+    }
+
+    private Response historyResult(boolean applied) {
+        if (!applied) {
+            return Response.status(Response.Status.CONFLICT).entity(history()).build();
+        }
+        ws.broadcastAll();
+        return Response.ok(history()).build();
+    }
+
     @POST
     @Path("/reorder")
     public Response reorder(List<String> ids) {
@@ -151,18 +312,8 @@ public class SpeakersResource {
     @POST
     @Path("/size")
     public Map<String, Object> setSize(Map<String, Object> payload) {
-        Object cw = payload.get("cardWidth");
-        Object ts = payload.get("textScale");
-        Object as = payload.get("actionSize");
-        if (cw != null) {
-            try { store.setUiCardWidth(Integer.parseInt(String.valueOf(cw))); } catch (Exception ignored) {}
-        }
-        if (ts != null) {
-            try { store.setUiTextScale(Integer.parseInt(String.valueOf(ts))); } catch (Exception ignored) {}
-        }
-        if (as != null) {
-            try { store.setUiActionSize(Integer.parseInt(String.valueOf(as))); } catch (Exception ignored) {}
-        }
+        store.updateSize(parseIntOrNull(payload.get("cardWidth")), parseIntOrNull(payload.get("textScale")),
+                parseIntOrNull(payload.get("actionSize")));
         ws.broadcastSize();
         return Map.of(
                 "cardWidth", store.getUiCardWidth(),
@@ -183,14 +334,7 @@ public class SpeakersResource {
     @POST
     @Path("/sizeMain")
     public Map<String, Object> setSizeMain(Map<String, Object> payload) {
-        Object cw = payload.get("cardWidth");
-        Object ts = payload.get("textScale");
-        if (cw != null) {
-            try { store.setUiCardWidthMain(Integer.parseInt(String.valueOf(cw))); } catch (Exception ignored) {}
-        }
-        if (ts != null) {
-            try { store.setUiTextScaleMain(Integer.parseInt(String.valueOf(ts))); } catch (Exception ignored) {}
-        }
+        store.updateSizeMain(parseIntOrNull(payload.get("cardWidth")), parseIntOrNull(payload.get("textScale")));
         ws.broadcastSizeMain();
         return Map.of(
                 "cardWidth", store.getUiCardWidthMain(),
@@ -222,14 +366,18 @@ public class SpeakersResource {
             default -> ".bin";
         };
         try {
-            java.nio.file.Path dir = java.nio.file.Path.of(imagesDir);
+            java.nio.file.Path dir = java.nio.file.Path.of(imagesDir).toAbsolutePath().normalize();
             if (!Files.exists(dir)) {
                 if (dir.getParent() != null) Files.createDirectories(dir);
                 Files.createDirectories(dir);
             }
-            // ensure unique but stable per speaker: use speaker id as basename
-            String filename = id + ext;
-            java.nio.file.Path target = dir.resolve(filename);
+            // a new name per upload, see SpeakerStore.newImageFilename
+            String filename = SpeakerStore.newImageFilename(id, ext);
+            java.nio.file.Path target = dir.resolve(filename).normalize();
+            if (!target.getParent().equals(dir)) {
+                // ids from older imports or state files are not validated
+                return Response.status(400).entity("Invalid speaker id for an image").build();
+            }
             // write stream with size limit (5MB)
             long max = 5L * 1024 * 1024;
             long written = 0;
@@ -246,12 +394,8 @@ public class SpeakersResource {
                     out.write(buf, 0, r);
                 }
             }
-            // delete old image if different filename
-            if (sp.getImageFilename() != null && !sp.getImageFilename().equals(filename)) {
-                try { Files.deleteIfExists(dir.resolve(sp.getImageFilename())); } catch (Exception ignored) {}
-            }
-            sp.setImageFilename(filename);
-            store.persist();
+            // the previous image is kept aside by the store for undo
+            store.setImageFilename(id, filename);
             ws.broadcastState();
             return Response.ok(filename).build();
         } catch (IOException e) {
@@ -267,8 +411,9 @@ public class SpeakersResource {
         String filename = sp.getImageFilename();
         if (filename == null || filename.isBlank()) return Response.status(404).build();
         try {
-            java.nio.file.Path file = java.nio.file.Path.of(imagesDir).resolve(filename);
-            if (!Files.exists(file)) return Response.status(404).build();
+            java.nio.file.Path dir = java.nio.file.Path.of(imagesDir).toAbsolutePath().normalize();
+            java.nio.file.Path file = dir.resolve(filename).normalize();
+            if (!dir.equals(file.getParent()) || !Files.exists(file)) return Response.status(404).build();
             String ct;
             if (filename.endsWith(".png")) ct = "image/png";
             else if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) ct = "image/jpeg";
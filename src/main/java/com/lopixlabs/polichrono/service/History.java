@@ -0,0 +1,142 @@
+package com.lopixlabs.polichrono.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Bounded undo/redo history of {@link SpeakerStore} versions. Versions keep speakers in a
+ * {@link PersistentVector} indexed by slot, so consecutive versions share everything except the slots an
+ * action touched: a start or stop adds a few hundred bytes, a reset of the whole roster about one entry per
+ * speaker.
+ * <p>
+ * Versions are numbered in the order they were created; the retained ones always form one contiguous stretch
+ * of that timeline (undo stack, current, redo stack). Not thread-safe: guarded by the store lock.
+ */
+final class History {
+
+    /**
+     * One speaker's slot as of a version: its fields, raw timer values and roster links.
+     */
+    record Entry(String id, String name, String faceUrl, String imageFilename, Long limitMillis, Long warnMillis,
+                 long accumulatedNanos, long startNanos, boolean running, int prev, int next) {
+    }
+
+    record Settings(boolean autoStopOnStart, String title, int uiCardWidth, int uiTextScale, int uiActionSize,
+                    int uiCardWidthMain, int uiTextScaleMain, long defaultLimitMillis, long defaultWarnMillis,
+                    String limitAction) {
+    }
+
+    /**
+     * Complete store state; {@code slotCount} is how many timer slots were in use (free ones have no entry).
+     */
+    record Version(long seq, PersistentVector<Entry> slots, int slotCount, int head, int tail, int size,
+                   Settings settings) {
+    }
+
+    private final int limit;
+    private final Deque<Version> undo = new ArrayDeque<>();
+    private final Deque<Version> redo = new ArrayDeque<>();
+    private Version current;
+    private long seq;
+    // when current was pushed by pushSettings (nanoTime), or null once anything else happened since
+    private Long settingsOnlyAt;
+
+    History(int limit) {
+        this.limit = Math.max(0, limit);
+    }
+
+    Version current() {
+        return current;
+    }
+
+    long nextSeq() {
+        return ++seq;
+    }
+
+    /**
+     * Highest version number handed out so far.
+     */
+    long lastSeq() {
+        return seq;
+    }
+
+    /**
+     * Forgets all history; {@code base} becomes the only version.
+     */
+    void reset(Version base) {
+        undo.clear();
+        redo.clear();
+        current = base;
+        settingsOnlyAt = null;
+    }
+
+    /**
+     * Records a new version after an action. Drops the redo stack and the oldest version beyond the limit.
+     */
+    void push(Version next) {
+        if (limit > 0) {
+            undo.push(current);
+            if (undo.size() > limit) {
+                undo.removeLast();
+            }
+        }
+        redo.clear();
+        current = next;
+        settingsOnlyAt = null;
+    }
+
+    /**
+     * Records a version that only changed settings. If the current version is one too, recorded less than
+     * {@code windowNanos} ago, {@code next} replaces it: dragging a slider then costs one undo step, not one
+     * per position, and does not push older changes out of the history.
+     */
+    void pushSettings(Version next, long nowNanos, long windowNanos) {
+        if (settingsOnlyAt != null && nowNanos - settingsOnlyAt <= windowNanos) {
+            current = next;
+        } else {
+            push(next);
+        }
+        settingsOnlyAt = nowNanos;
+    }
+
+    /**
+     * @return the version to restore, or null when there is nothing to undo
+     */
+    Version undo() {
+        if (undo.isEmpty()) {
+            return null;
+        }
+        redo.push(current);
+        current = undo.pop();
+        settingsOnlyAt = null;
+        return current;
+    }
+
+    /**
+     * @return the version to restore, or null when there is nothing to redo
+     */
+    Version redo() {
+        if (redo.isEmpty()) {
+            return null;
+        }
+        undo.push(current);
+        current = redo.pop();
+        settingsOnlyAt = null;
+        return current;
+    }
+
+    int undoCount() {
+        return undo.size();
+    }
+
+    int redoCount() {
+        return redo.size();
+    }
+
+    /**
+     * Number of the oldest version still retained.
+     */
+    long oldestSeq() {
+        return undo.isEmpty() ? current.seq() : undo.peekLast().seq();
+    }
+}
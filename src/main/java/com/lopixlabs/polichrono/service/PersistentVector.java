@@ -0,0 +1,102 @@
+package com.lopixlabs.polichrono.service;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Immutable sparse vector indexed by int, stored as a 32-way trie. Updating returns a new vector that shares
+ * every untouched node with the old one, so a version differs from its predecessor only by the paths to the
+ * changed indexes (about {@code log32(n)} small arrays each).
+ * <p>
+ * Updates go through an {@link Editor}, which copies each node at most once per batch.
+ */
+final class PersistentVector<T> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final Object[] root;
+    private final int shift;
+
+    private PersistentVector(Object[] root, int shift) {
+        this.root = root;
+        this.shift = shift;
+    }
+
+    static <T> PersistentVector<T> empty() {
+        return new PersistentVector<>(new Object[WIDTH], 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        if (index < 0 || index >= capacity(shift)) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (T) node[index & MASK];
+    }
+
+    Editor<T> edit() {
+        return new Editor<>(root, shift);
+    }
+
+    private static long capacity(int shift) {
+        return 1L << (shift + BITS);
+    }
+
+    /**
+     * Batch of updates on top of a vector; {@link #build()} returns the new version. Not reusable afterwards.
+     */
+    static final class Editor<T> {
+        private Object[] root;
+        private int shift;
+        // nodes created by this editor, safe to modify in place
+        private final Set<Object[]> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Editor(Object[] root, int shift) {
+            this.root = root;
+            this.shift = shift;
+        }
+
+        void set(int index, T value) {
+            while (index >= capacity(shift)) {
+                Object[] up = own(new Object[WIDTH]);
+                up[0] = root;
+                root = up;
+                shift += BITS;
+            }
+            root = copyIfShared(root);
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                int i = (index >>> level) & MASK;
+                Object[] child = (Object[]) node[i];
+                child = child == null ? own(new Object[WIDTH]) : copyIfShared(child);
+                node[i] = child;
+                node = child;
+            }
+            node[index & MASK] = value;
+        }
+
+        PersistentVector<T> build() {
+            owned.clear();
+            return new PersistentVector<>(root, shift);
+        }
+
+        private Object[] copyIfShared(Object[] node) {
+            return owned.contains(node) ? node : own(node.clone());
+        }
+
+        private Object[] own(Object[] node) {
+            owned.add(node);
+            return node;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.lopixlabs.polichrono.service;
+
+import com.lopixlabs.polichrono.model.Speaker;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Roster order as a doubly linked list threaded through primitive arrays indexed by the same slots as
+ * {@link TimerTable}. Inserting, removing and moving a speaker are O(1) and never copy the roster.
+ * Slots whose links change are flagged in the {@code changed} set shared with {@link TimerTable}.
+ * <p>
+ * Not thread-safe: guarded by the {@link SpeakerStore} lock.
+ */
+final class RosterOrder implements Iterable<Speaker> {
+
+    static final int NONE = -1;
+
+    private Speaker[] speakers;
+    private int[] prev;
+    private int[] next;
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+    private final BitSet changed;
+
+    RosterOrder(int initialCapacity, BitSet changed) {
+        this.changed = changed;
+        int cap = Math.max(8, initialCapacity);
+        speakers = new Speaker[cap];
+        prev = new int[cap];
+        next = new int[cap];
+    }
+
+    int head() {
+        return head;
+    }
+
+    int tail() {
+        return tail;
+    }
+
+    int next(int slot) {
+        return next[slot];
+    }
+
+    int prev(int slot) {
+        return prev[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    Speaker get(int slot) {
+        return speakers[slot];
+    }
+
+    /**
+     * Links {@code s} (whose slot is not in the list) before {@code beforeSlot}, or at the end for {@link #NONE}.
+     */
+    void insertBefore(Speaker s, int beforeSlot) {
+        int slot = s.getSlot();
+        ensureCapacity(slot + 1);
+        speakers[slot] = s;
+        changed.set(slot);
+        if (beforeSlot == NONE) {
+            prev[slot] = tail;
+            next[slot] = NONE;
+            if (tail != NONE) {
+                next[tail] = slot;
+                changed.set(tail);
+            } else {
+                head = slot;
+            }
+            tail = slot;
+        } else {
+            int p = prev[beforeSlot];
+            prev[slot] = p;
+            next[slot] = beforeSlot;
+            prev[beforeSlot] = slot;
+            changed.set(beforeSlot);
+            if (p != NONE) {
+                next[p] = slot;
+                changed.set(p);
+            } else {
+                head = slot;
+            }
+        }
+        size++;
+    }
+
+    void append(Speaker s) {
+        insertBefore(s, NONE);
+    }
+
+    void remove(int slot) {
+        unlink(slot);
+        speakers[slot] = null;
+    }
+
+    /**
+     * Puts back one slot's links after {@link #clear()}; {@link #restoreEnds} completes the list.
+     */
+    void restore(Speaker s, int prevSlot, int nextSlot) {
+        int slot = s.getSlot();
+        ensureCapacity(slot + 1);
+        speakers[slot] = s;
+        prev[slot] = prevSlot;
+        next[slot] = nextSlot;
+    }
+
+    void restoreEnds(int headSlot, int tailSlot, int count) {
+        head = headSlot;
+        tail = tailSlot;
+        size = count;
+    }
+
+    void moveBefore(int slot, int beforeSlot) {
+        if (slot == beforeSlot || (beforeSlot != NONE && next[slot] == beforeSlot) || (beforeSlot == NONE && tail == slot)) {
+            return;
+        }
+        Speaker s = speakers[slot];
+        unlink(slot);
+        insertBefore(s, beforeSlot);
+    }
+
+    void clear() {
+        Arrays.fill(speakers, null);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Speaker> iterator() {
+        return new Iterator<>() {
+            private int cursor = head;
+
+            @Override
+            public boolean hasNext() {
+                return cursor != NONE;
+            }
+
+            @Override
+            public Speaker next() {
+                if (cursor == NONE) {
+                    throw new NoSuchElementException();
+                }
+                Speaker s = speakers[cursor];
+                cursor = RosterOrder.this.next[cursor];
+                return s;
+            }
+        };
+    }
+
+    private void unlink(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p != NONE) {
+            next[p] = n;
+            changed.set(p);
+        } else {
+            head = n;
+        }
+        if (n != NONE) {
+            prev[n] = p;
+            changed.set(n);
+        } else {
+            tail = p;
+        }
+        prev[slot] = NONE;
+        next[slot] = NONE;
+        changed.set(slot);
+        size--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= speakers.length) {
+            return;
+        }
+        int cap = Math.max(capacity, speakers.length * 2);
+        speakers = Arrays.copyOf(speakers, cap);
+        prev = Arrays.copyOf(prev, cap);
+        next = Arrays.copyOf(next, cap);
+    }
+}
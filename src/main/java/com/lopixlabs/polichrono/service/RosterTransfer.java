@@ -0,0 +1,380 @@
+package com.lopixlabs.polichrono.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lopixlabs.polichrono.codec.StateCodec;
+import com.lopixlabs.polichrono.model.Speaker;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streaming roster import (CSV, NDJSON, or a ZIP holding one of those plus images) and export (CSV, NDJSON).
+ * <p>
+ * Imports are parsed row by row into a local spool file, without the store lock, so a slow upload never holds
+ * up timers; {@link SpeakerStore#importSpeakers} then applies the spool in one pass, one persist and one
+ * broadcast for a whole agenda. A malformed row aborts the import before anything is applied. Exports take the
+ * roster's ids in one pass and copy the speakers in batches, skipping any deleted meanwhile.
+ * <p>
+ * Recognised columns / keys: {@code name} (required), {@code id}, {@code elapsedMillis}, {@code limitMillis},
+ * {@code warnMillis} and {@code image}, the file name of an image inside the same ZIP.
+ */
+@ApplicationScoped
+public class RosterTransfer {
+
+    private static final int EXPORT_PAGE = 500;
+    private static final long MAX_IMAGE_BYTES = 5L * 1024 * 1024;
+    private static final List<String> IMAGE_EXTS = List.of(".png", ".jpg", ".jpeg", ".gif", ".webp");
+    // ids end up in image file names (<id><ext>), so no dots or separators
+    private static final Pattern SAFE_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    @Inject
+    SpeakerStore store;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @ConfigProperty(name = "images.dir", defaultValue = "./data/images")
+    String imagesDir;
+
+    public int importCsv(InputStream in, boolean replace) throws IOException {
+        return apply(csvRows(in, null), replace);
+    }
+
+    public int importNdjson(InputStream in, boolean replace) throws IOException {
+        return apply(ndjsonRows(in, null), replace);
+    }
+
+    /**
+     * ZIP with one roster file ({@code .csv}, {@code .ndjson} or {@code .jsonl}) and any number of images, in any
+     * order. Images are staged on disk as they stream by and linked to their speakers at the end.
+     */
+    public int importZip(InputStream in, boolean replace) throws IOException {
+        Path dir = Path.of(imagesDir).toAbsolutePath().normalize();
+        Path staging = dir.resolve(".import-" + UUID.randomUUID());
+        Files.createDirectories(staging);
+        // image reference in the roster -> final file name under images.dir
+        List<String[]> links = new ArrayList<>();
+        BiConsumer<String, String> imageRefs = (ref, target) -> links.add(new String[]{ref, target});
+        int count = -1;
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = fileName(entry.getName());
+                String lower = name.toLowerCase(Locale.ROOT);
+                InputStream body = new FilterInputStream(zip) {
+                    @Override
+                    public void close() {
+                        // keep the archive open for the next entry
+                    }
+                };
+                if (count < 0 && lower.endsWith(".csv")) {
+                    count = apply(csvRows(body, imageRefs), replace);
+                } else if (count < 0 && (lower.endsWith(".ndjson") || lower.endsWith(".jsonl"))) {
+                    count = apply(ndjsonRows(body, imageRefs), replace);
+                } else if (imageExt(lower) != null) {
+                    stageImage(body, staging.resolve(name));
+                }
+            }
+            if (count < 0) {
+                throw new IllegalArgumentException("Archive has no .csv or .ndjson roster");
+            }
+            for (String[] link : links) {
+                Path src = staging.resolve(link[0]).normalize();
+                Path target = dir.resolve(link[1]).normalize();
+                if (src.startsWith(staging) && target.startsWith(dir) && Files.exists(src)) {
+                    Files.copy(src, target);
+                }
+            }
+            return count;
+        } finally {
+            deleteRecursively(staging);
+        }
+    }
+
+    public void exportCsv(OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        w.write("id,name,elapsedMillis,running,limitMillis,warnMillis,imageFilename\n");
+        List<String> ids = store.ids();
+        for (int i = 0; i < ids.size(); i += EXPORT_PAGE) {
+            for (Speaker s : store.copiesOf(ids.subList(i, Math.min(ids.size(), i + EXPORT_PAGE)))) {
+                w.write(CsvReader.quote(s.getId()));
+                w.write(',');
+                w.write(CsvReader.quote(s.getName()));
+                w.write(',');
+                w.write(Long.toString(s.getElapsedMillis()));
+                w.write(',');
+                w.write(Boolean.toString(s.isRunning()));
+                w.write(',');
+                w.write(s.getLimitMillis() == null ? "" : s.getLimitMillis().toString());
+                w.write(',');
+                w.write(s.getWarnMillis() == null ? "" : s.getWarnMillis().toString());
+                w.write(',');
+                w.write(CsvReader.quote(s.getImageFilename()));
+                w.write('\n');
+            }
+        }
+        w.flush();
+    }
+
+    public void exportNdjson(OutputStream out) throws IOException {
+        JsonGenerator g = mapper.getFactory().createGenerator(out);
+        // compact objects, one per line
+        g.setPrettyPrinter(new MinimalPrettyPrinter(""));
+        List<String> ids = store.ids();
+        for (int i = 0; i < ids.size(); i += EXPORT_PAGE) {
+            for (Speaker s : store.copiesOf(ids.subList(i, Math.min(ids.size(), i + EXPORT_PAGE)))) {
+                StateCodec.writeSpeaker(g, s);
+                g.writeRaw('\n');
+            }
+        }
+        g.flush();
+    }
+
+    // parses all rows into a temp file first, then hands the store an iterator over that file
+    private int apply(Iterator<Speaker> rows, boolean replace) throws IOException {
+        Path spool = Files.createTempFile("roster-import-", ".ndjson");
+        try {
+            try (JsonGenerator g = mapper.getFactory().createGenerator(Files.newOutputStream(spool))) {
+                g.setPrettyPrinter(new MinimalPrettyPrinter(""));
+                while (rows.hasNext()) {
+                    StateCodec.writeSpeaker(g, rows.next());
+                    g.writeRaw('\n');
+                }
+            }
+            try (JsonParser p = mapper.getFactory().createParser(spool.toFile())) {
+                return store.importSpeakers(spooledRows(p), replace);
+            }
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    private static Iterator<Speaker> spooledRows(JsonParser p) {
+        return new Iterator<>() {
+            private Speaker next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = p.nextToken() == JsonToken.START_OBJECT ? StateCodec.readSpeaker(p) : null;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Speaker next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Speaker s = next;
+                next = null;
+                return s;
+            }
+        };
+    }
+
+    private Iterator<Speaker> csvRows(InputStream in, BiConsumer<String, String> imageRefs) {
+        CsvReader csv = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        return new Iterator<>() {
+            private List<String> header;
+            private List<String> next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = csv.next();
+                        if (header == null && next != null) {
+                            header = new ArrayList<>();
+                            for (String h : next) {
+                                header.add(h.trim().toLowerCase(Locale.ROOT));
+                            }
+                            if (header.contains("name")) {
+                                next = csv.next();
+                            } else {
+                                // no header: a plain list of names
+                                header = List.of("name");
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Speaker next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<String> r = next;
+                next = null;
+                return row(column(r, "id"), column(r, "name"), column(r, "elapsedmillis"), column(r, "limitmillis"),
+                        column(r, "warnmillis"), column(r, "image"), imageRefs);
+            }
+
+            private String column(List<String> record, String name) {
+                int idx = header.indexOf(name);
+                return idx >= 0 && idx < record.size() ? record.get(idx) : null;
+            }
+        };
+    }
+
+    private Iterator<Speaker> ndjsonRows(InputStream in, BiConsumer<String, String> imageRefs) throws IOException {
+        MappingIterator<JsonNode> it = mapper.readerFor(JsonNode.class).readValues(in);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return it.hasNext();
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Malformed NDJSON: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public Speaker next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                JsonNode n;
+                try {
+                    n = it.next();
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Malformed NDJSON: " + e.getMessage(), e);
+                }
+                return row(text(n, "id"), text(n, "name"), text(n, "elapsedMillis"), text(n, "limitMillis"),
+                        text(n, "warnMillis"), text(n, "image"), imageRefs);
+            }
+
+            private String text(JsonNode n, String field) {
+                JsonNode v = n.get(field);
+                return v == null || v.isNull() ? null : v.asText();
+            }
+        };
+    }
+
+    private static Speaker row(String id, String name, String elapsed, String limit, String warn, String image,
+                               BiConsumer<String, String> imageRefs) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Every row needs a name");
+        }
+        Speaker s = new Speaker(name.trim(), "");
+        if (id != null && !id.isBlank()) {
+            if (!SAFE_ID.matcher(id.trim()).matches()) {
+                throw new IllegalArgumentException("Invalid id (letters, digits, '-' and '_' only): " + id.trim());
+            }
+            s.setId(id.trim());
+        }
+        s.setElapsedMillis(Math.max(0, parseLong(elapsed, 0L)));
+        s.setLimitMillis(blank(limit) ? null : parseLong(limit, 0L));
+        s.setWarnMillis(blank(warn) ? null : parseLong(warn, 0L));
+        // images only resolve inside an archive. Each import writes a new file, never over the speaker's current
+        // one: the store trashes that one, so undo can bring it back
+        if (imageRefs != null && !blank(image)) {
+            String ref = fileName(image.trim());
+            String ext = imageExt(ref.toLowerCase(Locale.ROOT));
+            if (ext != null) {
+                String target = SpeakerStore.newImageFilename(s.getId(), ext);
+                s.setImageFilename(target);
+                imageRefs.accept(ref, target);
+            }
+        }
+        return s;
+    }
+
+    private static void stageImage(InputStream in, Path target) throws IOException {
+        long written = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            byte[] buf = new byte[8192];
+            int r;
+            while ((r = in.read(buf)) != -1) {
+                written += r;
+                if (written > MAX_IMAGE_BYTES) {
+                    break;
+                }
+                out.write(buf, 0, r);
+            }
+        }
+        if (written > MAX_IMAGE_BYTES) {
+            // same limit as uploads: skip it, the speaker just has no image
+            Files.deleteIfExists(target);
+        }
+    }
+
+    private static String imageExt(String lowerName) {
+        for (String ext : IMAGE_EXTS) {
+            if (lowerName.endsWith(ext)) {
+                return ext.equals(".jpeg") ? ".jpg" : ext;
+            }
+        }
+        return null;
+    }
+
+    private static String fileName(String path) {
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        return path.substring(slash + 1);
+    }
+
+    private static boolean blank(String v) {
+        return v == null || v.isBlank();
+    }
+
+    private static long parseLong(String v, long def) {
+        try {
+            return v == null ? def : Long.parseLong(v.trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (var files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(f);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+}
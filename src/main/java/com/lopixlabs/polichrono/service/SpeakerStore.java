@@ -1,39 +1,74 @@
 package com.lopixlabs.polichrono.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lopixlabs.polichrono.codec.JsonText;
 import com.lopixlabs.polichrono.model.Speaker;
+import com.lopixlabs.polichrono.model.SpeakerPage;
+import com.lopixlabs.polichrono.persistence.SpeakerRepository;
+import com.lopixlabs.polichrono.persistence.StoredState;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.Instant;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 @ApplicationScoped
 public class SpeakerStore {
 
-    private final List<Speaker> speakers = new CopyOnWriteArrayList<>();
-    @ConfigProperty(name = "speakers.file", defaultValue = "./data/speakers.json")
-    String filePath;
+    private static final String TRASH_DIR = ".trash";
+
+    private final Map<String, Speaker> byId = new ConcurrentHashMap<>();
+    // slots touched since the last history version; flagged by the tables below and by field updates
+    private final BitSet changed = new BitSet();
+    // roster order and live timers, both indexed by Speaker.getSlot(); guarded by this
+    private final RosterOrder speakers = new RosterOrder(64, changed);
+    private final TimerTable timers = new TimerTable(64, changed);
+    // undo/redo; images of removed speakers wait in TRASH_DIR until no retained version refers to them
+    private History history;
+    private final Map<String, Long> trashedImages = new HashMap<>();
+    // reused by stateJson() so the once-per-second tick does not allocate intermediate objects
+    private final StringBuilder stateJson = new StringBuilder(4096);
     @Inject
-    ObjectMapper mapper;
+    SpeakerRepository repository;
+    @Inject
+    Event<StateChanged> stateChanged;
+    @Inject
+    Event<TimerChanged> timerChanged;
     @ConfigProperty(name = "images.dir", defaultValue = "./data/images")
     String imagesDir;
     @ConfigProperty(name = "chrono.autostop", defaultValue = "true")
     boolean defaultAutoStop;
     @ConfigProperty(name = "chrono.title", defaultValue = "")
     String defaultTitle;
+    @ConfigProperty(name = "chrono.history.size", defaultValue = "200")
+    int historySize;
+    // settings-only changes this close together are one undo step
+    @ConfigProperty(name = "chrono.history.coalesce-millis", defaultValue = "2000")
+    long historyCoalesceMillis;
+    // followers and relays may share images.dir with the primary, whose trash is not theirs to empty
+    @ConfigProperty(name = "chrono.replication.role", defaultValue = "standalone")
+    String replicationRole;
+    @ConfigProperty(name = "chrono.relay.upstream-host")
+    Optional<String> relayUpstreamHost;
     private volatile boolean autoStopOnStart;
     private volatile String title;
     // UI settings (persisted to file)
@@ -44,99 +79,307 @@ public class SpeakerStore {
     // Audience (main page) UI settings: separate controls from admin
     private volatile int uiCardWidthMain = 360;
     private volatile int uiTextScaleMain = 100;
+    // Speaking limits: defaults for speakers without their own (0 = none), and what to do when reached
+    private volatile long defaultLimitMillis;
+    private volatile long defaultWarnMillis;
+    private volatile String limitAction = "none";
+
+    /**
+     * Up to {@code limit} speakers following the one with id {@code cursor} (from the start when null),
+     * optionally keeping only names containing {@code query} (case-insensitive).
+     *
+     * @throws IllegalArgumentException if no speaker has the id {@code cursor} (deleted since the previous page)
+     */
+    public synchronized SpeakerPage page(String cursor, int limit, String query) {
+        int slot = speakers.head();
+        if (cursor != null && !cursor.isBlank()) {
+            Speaker after = byId.get(cursor);
+            if (after == null) {
+                throw new IllegalArgumentException("Unknown cursor " + cursor + ", start again without one");
+            }
+            slot = speakers.next(after.getSlot());
+        }
+        String q = query == null || query.isBlank() ? null : query.trim();
+        long now = TimerTable.now();
+        List<Speaker> items = new ArrayList<>(Math.min(limit, speakers.size()));
+        String last = null;
+        for (; slot != RosterOrder.NONE && items.size() < limit; slot = speakers.next(slot)) {
+            Speaker s = speakers.get(slot);
+            if (q == null || containsIgnoreCase(s.getName(), q)) {
+                items.add(copyOf(s, now));
+                last = s.getId();
+            }
+        }
+        // more only if a further match exists
+        while (slot != RosterOrder.NONE && q != null && !containsIgnoreCase(speakers.get(slot).getName(), q)) {
+            slot = speakers.next(slot);
+        }
+        return new SpeakerPage(items, slot == RosterOrder.NONE ? null : last);
+    }
 
-    public List<Speaker> list() {
-        // return a copy with computed elapsed
-        List<Speaker> copy = new ArrayList<>();
+    /**
+     * Current roster as the JSON array sent to {@code /ws} clients, encoded straight from the timer table
+     * into a reused buffer (same fields as a serialized {@link Speaker}, elapsed time computed as of now).
+     */
+    public synchronized String stateJson() {
+        long now = TimerTable.now();
+        StringBuilder sb = stateJson;
+        sb.setLength(0);
+        sb.append('[');
+        for (int slot = speakers.head(); slot != RosterOrder.NONE; slot = speakers.next(slot)) {
+            Speaker s = speakers.get(slot);
+            if (slot != speakers.head()) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":");
+            JsonText.appendString(sb, s.getId());
+            sb.append(",\"name\":");
+            JsonText.appendString(sb, s.getName());
+            sb.append(",\"faceUrl\":");
+            JsonText.appendString(sb, s.getFaceUrl());
+            sb.append(",\"imageFilename\":");
+            JsonText.appendString(sb, s.getImageFilename());
+            sb.append(",\"elapsedMillis\":").append(timers.elapsedMillis(s.getSlot(), now));
+            sb.append(",\"running\":").append(timers.isRunning(s.getSlot()));
+            sb.append(",\"limitMillis\":");
+            JsonText.appendLong(sb, s.getLimitMillis());
+            sb.append(",\"warnMillis\":");
+            JsonText.appendLong(sb, s.getWarnMillis());
+            sb.append('}');
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    /**
+     * Ids of the whole roster in order, taken in one pass.
+     */
+    public synchronized List<String> ids() {
+        List<String> ids = new ArrayList<>(speakers.size());
         for (Speaker s : speakers) {
-            Speaker c = new Speaker();
-            c.setId(s.getId());
-            c.setName(s.getName());
-            c.setFaceUrl(s.getFaceUrl());
-            c.setImageFilename(s.getImageFilename());
-            c.setElapsedMillis(s.getElapsedMillis());
-            c.setRunning(s.isRunning());
-            copy.add(c);
+            ids.add(s.getId());
         }
-        return copy;
+        return ids;
+    }
+
+    /**
+     * Copies of the given speakers as of now, in the given order; ids no longer in the roster are skipped.
+     */
+    public synchronized List<Speaker> copiesOf(List<String> ids) {
+        long now = TimerTable.now();
+        List<Speaker> out = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Speaker s = byId.get(id);
+            if (s != null) {
+                out.add(copyOf(s, now));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * File name for a new image of speaker {@code id}: never the name of an earlier image, so the one it
+     * replaces can go to the trash for undo, and caches keyed by file name (relays, browsers) see the change.
+     */
+    public static String newImageFilename(String id, String ext) {
+        return id + "-" + UUID.randomUUID().toString().substring(0, 8) + ext;
     }
 
     public Optional<Speaker> get(String id) {
-        return speakers.stream().filter(s -> Objects.equals(s.getId(), id)).findFirst();
+        return id == null ? Optional.empty() : Optional.ofNullable(byId.get(id));
     }
 
-    public Speaker create(String name, String faceUrl) {
+    public synchronized Speaker create(String name, String faceUrl) {
         Speaker s = new Speaker(name, faceUrl);
-        speakers.add(s);
+        s.setSlot(timers.allocate(0L));
+        speakers.append(s);
+        byId.put(s.getId(), s);
         persist();
-        return s;
+        return copyOf(s, TimerTable.now());
     }
 
-    public Speaker update(String id, String name, String faceUrl) {
+    public synchronized Speaker update(String id, String name, String faceUrl) {
         Speaker s = get(id).orElseThrow(NoSuchElementException::new);
         s.setName(name);
         s.setFaceUrl(faceUrl);
+        changed.set(s.getSlot());
+        persist();
+        return copyOf(s, TimerTable.now());
+    }
+
+    public synchronized void setImageFilename(String id, String imageFilename) {
+        Speaker s = get(id).orElseThrow(NoSuchElementException::new);
+        if (s.getImageFilename() != null && !s.getImageFilename().equals(imageFilename)) {
+            trashImage(s.getImageFilename());
+        }
+        s.setImageFilename(imageFilename);
+        changed.set(s.getSlot());
         persist();
-        return s;
     }
 
-    public void delete(String id) {
+    public synchronized void delete(String id) {
         get(id).ifPresent(s -> {
-            s.stop();
-            // delete image file if exists
-            if (s.getImageFilename() != null && !s.getImageFilename().isBlank()) {
-                try {
-                    Path img = Path.of(imagesDir).resolve(s.getImageFilename());
-                    Files.deleteIfExists(img);
-                } catch (Exception ignored) {
+            stopTimer(s, TimerTable.now());
+            trashImage(s.getImageFilename());
+            speakers.remove(s.getSlot());
+            byId.remove(s.getId());
+            timers.release(s.getSlot());
+            persist();
+        });
+    }
+
+    /**
+     * Adds the given speakers in one pass with a single persist at the end. Rows whose id already exists
+     * update that speaker's name, image and limits instead. With {@code replace}, the roster becomes exactly
+     * the imported rows (in import order) and speakers not listed are removed.
+     * <p>
+     * The iterator is consumed under the store lock: it must not wait on the network (uploads are spooled to
+     * disk first, see {@link RosterTransfer}). If it fails halfway, the rows read so far are kept (and nothing
+     * is removed) before the error is rethrown.
+     *
+     * @return number of rows applied
+     */
+    public synchronized int importSpeakers(Iterator<Speaker> rows, boolean replace) {
+        long now = TimerTable.now();
+        // replace: speakers not (yet) seen in the import
+        Map<String, Speaker> previous = new LinkedHashMap<>();
+        if (replace) {
+            for (Speaker s : speakers) {
+                previous.put(s.getId(), s);
+            }
+            speakers.clear();
+        }
+        int count = 0;
+        try {
+            while (rows.hasNext()) {
+                Speaker row = rows.next();
+                String id = row.getId() == null || row.getId().isBlank() ? UUID.randomUUID().toString() : row.getId();
+                Speaker s = byId.get(id);
+                if (s == null) {
+                    s = row;
+                    s.setId(id);
+                    s.setSlot(timers.allocate(row.getElapsedMillis()));
+                    byId.put(id, s);
+                    speakers.append(s);
+                } else {
+                    s.setName(row.getName());
+                    if (row.getImageFilename() != null) {
+                        if (s.getImageFilename() != null && !s.getImageFilename().equals(row.getImageFilename())) {
+                            trashImage(s.getImageFilename());
+                        }
+                        s.setImageFilename(row.getImageFilename());
+                    }
+                    s.setLimitMillis(row.getLimitMillis());
+                    s.setWarnMillis(row.getWarnMillis());
+                    changed.set(s.getSlot());
+                    if (timers.isRunning(s.getSlot())) {
+                        // reschedule its alerts for the new limits
+                        fireTimerChanged(s, now);
+                    }
+                    if (previous.remove(id) != null) {
+                        speakers.append(s);
+                    }
                 }
+                count++;
+            }
+        } catch (RuntimeException e) {
+            for (Speaker s : previous.values()) {
+                speakers.append(s);
             }
-            speakers.remove(s);
             persist();
-        });
+            throw e;
+        }
+        for (Speaker s : previous.values()) {
+            stopTimer(s, now);
+            trashImage(s.getImageFilename());
+            byId.remove(s.getId());
+            timers.release(s.getSlot());
+        }
+        persist();
+        return count;
     }
 
     public synchronized void startOnly(String id) {
         // legacy: always stop all first, then start target
-        long now = Instant.now().toEpochMilli();
-        for (Speaker sp : speakers) {
-            if (sp.isRunning()) {
-                sp.stop();
+        long now = TimerTable.now();
+        Speaker target = get(id).orElseThrow(NoSuchElementException::new);
+        if (timers.anyRunning()) {
+            for (Speaker sp : speakers) {
+                stopTimer(sp, now);
             }
         }
-        Speaker target = get(id).orElseThrow(NoSuchElementException::new);
-        target.setLastStartEpochMillis(now);
-        target.setRunning(true);
-        persist();
+        timers.start(target.getSlot(), now);
+        saveTimer(target, now);
+        fireTimerChanged(target, now);
+        persistTimers();
     }
 
     public synchronized void start(String id) {
-        long now = Instant.now().toEpochMilli();
-        if (autoStopOnStart) {
+        long now = TimerTable.now();
+        Speaker target = get(id).orElseThrow(NoSuchElementException::new);
+        if (autoStopOnStart && timers.anyRunning()) {
             for (Speaker sp : speakers) {
-                if (sp.isRunning() && !Objects.equals(sp.getId(), id)) {
-                    sp.stop();
+                if (sp != target) {
+                    stopTimer(sp, now);
                 }
             }
         }
-        Speaker target = get(id).orElseThrow(NoSuchElementException::new);
-        if (!target.isRunning()) {
-            target.setLastStartEpochMillis(now);
-            target.setRunning(true);
-        } else if (!autoStopOnStart) {
-            // if already running and autostop is off, keep running (noop)
+        // if already running, keep running (noop)
+        if (!timers.isRunning(target.getSlot())) {
+            timers.start(target.getSlot(), now);
+            saveTimer(target, now);
+            fireTimerChanged(target, now);
         }
-        persist();
+        persistTimers();
     }
 
     public synchronized void stop(String id) {
         Speaker s = get(id).orElseThrow(NoSuchElementException::new);
-        if (s.isRunning()) {
-            s.stop();
-            persist();
+        if (stopTimer(s, TimerTable.now())) {
+            persistTimers();
+        }
+    }
+
+    /**
+     * Stops the given speaker and starts the next one in roster order, if any.
+     */
+    public synchronized void startNext(String id) {
+        Speaker current = get(id).orElseThrow(NoSuchElementException::new);
+        stopTimer(current, TimerTable.now());
+        int next = speakers.next(current.getSlot());
+        if (next != RosterOrder.NONE) {
+            start(speakers.get(next).getId());
+        } else {
+            persistTimers();
         }
     }
 
+    /**
+     * Applies the limit action (see {@link #getLimitAction()}) to a speaker whose overtime alert expired, provided
+     * the alert is still {@code current} and the speaker still running and at or past its limit: a start, stop,
+     * reset or undo may have been processed between the expiry and this call. {@code current} is asked under the
+     * store lock, which also covers every {@link TimerChanged} that reschedules alerts.
+     *
+     * @return whether the speaker was still in overtime
+     */
+    public synchronized boolean onLimitReached(String id, BooleanSupplier current) {
+        Speaker s = byId.get(id);
+        if (s == null || !timers.isRunning(s.getSlot()) || !current.getAsBoolean()) {
+            return false;
+        }
+        long limit = limitOf(s);
+        if (limit <= 0 || timers.elapsedMillis(s.getSlot(), TimerTable.now()) < limit) {
+            return false;
+        }
+        switch (limitAction) {
+            case "stop" -> stop(id);
+            case "advance" -> startNext(id);
+            default -> {
+            }
+        }
+        return true;
+    }
+
     public boolean isAutoStopOnStart() {
         return autoStopOnStart;
     }
@@ -147,56 +390,72 @@ public class SpeakerStore {
     }
 
     public synchronized void stopAll() {
-        boolean changed = false;
-        for (Speaker sp : speakers) {
-            if (sp.isRunning()) {
-                sp.stop();
-                changed = true;
-            }
+        if (!timers.anyRunning()) {
+            return;
         }
-        if (changed) {
-            persist();
+        long now = TimerTable.now();
+        for (Speaker sp : speakers) {
+            stopTimer(sp, now);
         }
+        persistTimers();
     }
 
     public synchronized void resetAll() {
         boolean changed = false;
+        long now = TimerTable.now();
         for (Speaker sp : speakers) {
-            long before = sp.getElapsedMillis();
-            if (sp.isRunning() || before != 0L) {
-                sp.reset();
+            int slot = sp.getSlot();
+            if (timers.isRunning(slot)) {
+                timers.reset(slot);
+                saveTimer(sp, now);
+                fireTimerChanged(sp, now);
+                changed = true;
+            } else if (timers.elapsedMillis(slot, now) != 0L) {
+                timers.reset(slot);
+                saveTimer(sp, now);
                 changed = true;
             }
         }
         if (changed) {
-            persist();
+            persistTimers();
         }
     }
 
+    /**
+     * Moves a speaker right before {@code beforeId}, or to the end when {@code beforeId} is null. O(1).
+     */
+    public synchronized void move(String id, String beforeId) {
+        Speaker s = get(id).orElseThrow(NoSuchElementException::new);
+        int before = RosterOrder.NONE;
+        if (beforeId != null && !beforeId.isBlank()) {
+            before = get(beforeId).orElseThrow(NoSuchElementException::new).getSlot();
+        }
+        speakers.moveBefore(s.getSlot(), before);
+        persist();
+    }
+
     public synchronized void reorder(List<String> ids) {
         if (ids == null || ids.isEmpty()) {
             return;
         }
-        Map<String, Speaker> byId = new LinkedHashMap<>();
-        for (Speaker s : speakers) {
-            byId.put(s.getId(), s);
-        }
-        List<Speaker> reordered = new ArrayList<>();
-        for (String id : ids) {
-            Speaker s = byId.remove(id);
-            if (s != null) {
-                reordered.add(s);
+        // relink listed speakers in order in front of the others, which keep their current order
+        int first = speakers.head();
+        for (String id : new LinkedHashSet<>(ids)) {
+            Speaker s = byId.get(id);
+            if (s == null) {
+                continue;
+            }
+            if (s.getSlot() == first) {
+                first = speakers.next(first);
+            } else {
+                speakers.moveBefore(s.getSlot(), first);
             }
         }
-        // append any remaining speakers not present in ids preserving their current order
-        reordered.addAll(byId.values());
-        speakers.clear();
-        speakers.addAll(reordered);
         persist();
     }
 
-    public boolean anyRunning() {
-        return speakers.stream().anyMatch(Speaker::isRunning);
+    public synchronized boolean anyRunning() {
+        return timers.anyRunning();
     }
 
     public String getTitle() {
@@ -212,137 +471,456 @@ public class SpeakerStore {
         return uiCardWidth;
     }
 
-    public void setUiCardWidth(int uiCardWidth) {
-        this.uiCardWidth = Math.max(200, Math.min(1000, uiCardWidth));
-        persist();
-    }
-
     public int getUiTextScale() {
         return uiTextScale;
     }
 
-    public void setUiTextScale(int uiTextScale) {
-        this.uiTextScale = Math.max(50, Math.min(200, uiTextScale));
-        persist();
-    }
-
     public int getUiActionSize() {
         return uiActionSize;
     }
 
-    public void setUiActionSize(int uiActionSize) {
-        this.uiActionSize = Math.max(32, Math.min(96, uiActionSize));
+    public int getUiCardWidthMain() {
+        return uiCardWidthMain;
+    }
+
+    public int getUiTextScaleMain() {
+        return uiTextScaleMain;
+    }
+
+    /**
+     * Applies the admin UI sizes in one step with a single persist; null leaves a value unchanged.
+     */
+    public synchronized void updateSize(Integer cardWidth, Integer textScale, Integer actionSize) {
+        if (cardWidth != null) {
+            uiCardWidth = Math.max(200, Math.min(1000, cardWidth));
+        }
+        if (textScale != null) {
+            uiTextScale = Math.max(50, Math.min(200, textScale));
+        }
+        if (actionSize != null) {
+            uiActionSize = Math.max(32, Math.min(96, actionSize));
+        }
         persist();
     }
 
-    public int getUiCardWidthMain() {
-        return uiCardWidthMain;
+    /**
+     * Applies the audience UI sizes in one step with a single persist; null leaves a value unchanged.
+     */
+    public synchronized void updateSizeMain(Integer cardWidth, Integer textScale) {
+        if (cardWidth != null) {
+            uiCardWidthMain = Math.max(200, Math.min(1000, cardWidth));
+        }
+        if (textScale != null) {
+            uiTextScaleMain = Math.max(50, Math.min(200, textScale));
+        }
+        persist();
     }
 
-    public void setUiCardWidthMain(int uiCardWidthMain) {
-        this.uiCardWidthMain = Math.max(200, Math.min(1000, uiCardWidthMain));
+    public synchronized Speaker setLimit(String id, Long limitMillis, Long warnMillis) {
+        Speaker s = get(id).orElseThrow(NoSuchElementException::new);
+        s.setLimitMillis(limitMillis == null ? null : Math.max(0, limitMillis));
+        s.setWarnMillis(warnMillis == null ? null : Math.max(0, warnMillis));
+        changed.set(s.getSlot());
+        long now = TimerTable.now();
+        fireTimerChanged(s, now);
         persist();
+        return copyOf(s, now);
     }
 
-    public int getUiTextScaleMain() {
-        return uiTextScaleMain;
+    public long getDefaultLimitMillis() {
+        return defaultLimitMillis;
+    }
+
+    public long getDefaultWarnMillis() {
+        return defaultWarnMillis;
     }
 
-    public void setUiTextScaleMain(int uiTextScaleMain) {
-        this.uiTextScaleMain = Math.max(50, Math.min(200, uiTextScaleMain));
+    public String getLimitAction() {
+        return limitAction;
+    }
+
+    public synchronized void setDefaultLimits(long limitMillis, long warnMillis, String action) {
+        this.defaultLimitMillis = Math.max(0, limitMillis);
+        this.defaultWarnMillis = Math.max(0, warnMillis);
+        this.limitAction = parseLimitAction(action);
+        long now = TimerTable.now();
+        for (Speaker sp : speakers) {
+            if (timers.isRunning(sp.getSlot())) {
+                fireTimerChanged(sp, now);
+            }
+        }
         persist();
     }
 
-    private int parseIntOrDefault(Object v, int def) {
+    private static String parseLimitAction(Object v) {
+        String a = v == null ? "" : String.valueOf(v).toLowerCase();
+        return switch (a) {
+            case "stop", "advance" -> a;
+            default -> "none";
+        };
+    }
+
+    // stops the speaker's timer if running; returns whether it was
+    private boolean stopTimer(Speaker s, long now) {
+        if (!timers.isRunning(s.getSlot())) {
+            return false;
+        }
+        timers.stop(s.getSlot(), now);
+        saveTimer(s, now);
+        fireTimerChanged(s, now);
+        return true;
+    }
+
+    private void saveTimer(Speaker s, long now) {
+        repository.saveTimer(s.getId(), timers.elapsedMillis(s.getSlot(), now), timers.isRunning(s.getSlot()));
+    }
+
+    // after start/stop/reset: timers already written by saveTimer when the repository supports it
+    private void persistTimers() {
+        if (repository.writesTimersInPlace()) {
+            recordHistory();
+            stateChanged.fire(new StateChanged());
+        } else {
+            persist();
+        }
+    }
+
+    private void fireTimerChanged(Speaker s, long now) {
+        long warn = s.getWarnMillis() != null ? s.getWarnMillis() : defaultWarnMillis;
+        int slot = s.getSlot();
+        timerChanged.fire(new TimerChanged(s.getId(), timers.isRunning(slot), timers.elapsedMillis(slot, now), limitOf(s), warn));
+    }
+
+    // the speaker's own limit, else the default (0 = none)
+    private long limitOf(Speaker s) {
+        return s.getLimitMillis() != null ? s.getLimitMillis() : defaultLimitMillis;
+    }
+
+    private Speaker copyOf(Speaker s, long now) {
+        Speaker c = new Speaker();
+        c.setId(s.getId());
+        c.setName(s.getName());
+        c.setFaceUrl(s.getFaceUrl());
+        c.setImageFilename(s.getImageFilename());
+        c.setElapsedMillis(timers.elapsedMillis(s.getSlot(), now));
+        c.setRunning(timers.isRunning(s.getSlot()));
+        c.setLimitMillis(s.getLimitMillis());
+        c.setWarnMillis(s.getWarnMillis());
+        return c;
+    }
+
+    // moves an image out of the way instead of deleting it, so undo can bring it back
+    private void trashImage(String filename) {
+        if (filename == null || filename.isBlank()) {
+            return;
+        }
         try {
-            return v == null ? def : Integer.parseInt(String.valueOf(v));
-        } catch (Exception e) {
-            return def;
+            Path img = Path.of(imagesDir).resolve(filename);
+            if (Files.exists(img)) {
+                Path trash = Path.of(imagesDir).resolve(TRASH_DIR);
+                Files.createDirectories(trash);
+                Files.move(img, trash.resolve(filename), StandardCopyOption.REPLACE_EXISTING);
+                // versions up to the current one may still show it
+                trashedImages.put(filename, history == null ? 0L : history.lastSeq());
+            }
+        } catch (Exception ignored) {
+        }
+    }
+
+    private void untrashImage(String filename) {
+        if (filename == null || trashedImages.remove(filename) == null) {
+            return;
+        }
+        try {
+            Path dir = Path.of(imagesDir);
+            Files.move(dir.resolve(TRASH_DIR).resolve(filename), dir.resolve(filename), StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception ignored) {
+        }
+    }
+
+    // deletes trashed images that no retained version refers to any more
+    private void purgeTrash() {
+        if (trashedImages.isEmpty()) {
+            return;
+        }
+        long oldest = history.oldestSeq();
+        Iterator<Map.Entry<String, Long>> it = trashedImages.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+            if (e.getValue() < oldest) {
+                try {
+                    Files.deleteIfExists(Path.of(imagesDir).resolve(TRASH_DIR).resolve(e.getKey()));
+                } catch (Exception ignored) {
+                }
+                it.remove();
+            }
         }
     }
 
+    private static boolean containsIgnoreCase(String text, String part) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0, max = text.length() - part.length(); i <= max; i++) {
+            if (text.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @PostConstruct
     void init() {
         autoStopOnStart = defaultAutoStop;
         title = defaultTitle;
+        history = new History(historySize);
         try {
-            Path path = Path.of(filePath);
-            if (!Files.exists(path)) {
-                if (path.getParent() != null) {
-                    Files.createDirectories(path.getParent());
-                }
-                // initialize empty legacy array for backward compatibility
-                Files.writeString(path, "[]");
-            }
-            String json = Files.readString(path).trim();
-            List<Speaker> loaded;
-            // new format: object with properties + speakers
-            Map<String, Object> state = mapper.readValue(json, new TypeReference<Map<String, Object>>() {
-            });
-            Object vAuto = state.get("autoStopOnStart");
-            if (vAuto instanceof Boolean b) {
-                autoStopOnStart = b;
-            } else if (vAuto != null) {
-                autoStopOnStart = Boolean.parseBoolean(String.valueOf(vAuto));
+            StoredState state = repository.load();
+            if (state != null) {
+                applyState(state, false);
             }
-            Object vTitle = state.get("title");
-            title = vTitle == null ? defaultTitle : String.valueOf(vTitle);
-            uiCardWidth = parseIntOrDefault(state.get("uiCardWidth"), uiCardWidth);
-            uiTextScale = parseIntOrDefault(state.get("uiTextScale"), uiTextScale);
-            uiActionSize = parseIntOrDefault(state.get("uiActionSize"), uiActionSize);
-            uiCardWidthMain = parseIntOrDefault(state.get("uiCardWidthMain"), uiCardWidthMain);
-            uiTextScaleMain = parseIntOrDefault(state.get("uiTextScaleMain"), uiTextScaleMain);
-            Object sp = state.get("speakers");
-            loaded = mapper.convertValue(sp == null ? List.of() : sp, new TypeReference<List<Speaker>>() {
-            });
-
-            // sanitize
-            for (Speaker s : loaded) {
-                s.setRunning(false);
-                s.setLastStartEpochMillis(null);
-            }
-            speakers.clear();
-            speakers.addAll(loaded);
         } catch (Exception e) {
             // start empty on error
             speakers.clear();
+            byId.clear();
+            timers.clear();
         }
+        // history is kept in memory only: images trashed by a previous run are gone for good
+        if (ownsData()) {
+            try (var trashed = Files.list(Path.of(imagesDir).resolve(TRASH_DIR))) {
+                for (Path f : (Iterable<Path>) trashed::iterator) {
+                    Files.deleteIfExists(f);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+        history.reset(baseVersion());
+        changed.clear();
+    }
+
+    // standalone or primary: neither a replication follower nor a relay
+    private boolean ownsData() {
+        return !"follower".equalsIgnoreCase(replicationRole) && relayUpstreamHost.filter(h -> !h.isBlank()).isEmpty();
     }
 
     public synchronized void persist() {
+        recordHistory();
+        save();
+    }
+
+    private void save() {
         try {
-            Path path = Path.of(filePath);
-            if (!Files.exists(path)) {
-                if (path.getParent() != null) {
-                    Files.createDirectories(path.getParent());
-                }
-            }
-            // save complete state (properties + simplified speakers)
-            List<Map<String, Object>> simpleSpeakers = new ArrayList<>();
-            for (Speaker s : speakers) {
-                Map<String, Object> m = new LinkedHashMap<>();
-                m.put("id", s.getId());
-                m.put("name", s.getName());
-                m.put("faceUrl", s.getFaceUrl());
-                m.put("imageFilename", s.getImageFilename());
-                m.put("elapsedMillis", s.getElapsedMillis());
-                m.put("running", false); // persisted as stopped
-                simpleSpeakers.add(m);
-            }
-            Map<String, Object> state = new LinkedHashMap<>();
-            state.put("version", 1);
-            state.put("autoStopOnStart", autoStopOnStart);
-            state.put("title", title);
-            state.put("uiCardWidth", uiCardWidth);
-            state.put("uiTextScale", uiTextScale);
-            state.put("uiActionSize", uiActionSize);
-            state.put("uiCardWidthMain", uiCardWidthMain);
-            state.put("uiTextScaleMain", uiTextScaleMain);
-            state.put("speakers", simpleSpeakers);
-            String json = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(state);
-            Files.writeString(path, json);
+            repository.save(storedState(false));
         } catch (IOException e) {
             throw new RuntimeException("Failed to persist state", e);
         }
+        stateChanged.fire(new StateChanged());
+    }
+
+    /**
+     * Full state including live timers (running flag and elapsed as of now), used to replicate
+     * the store to follower nodes.
+     */
+    public synchronized StoredState snapshot() {
+        return storedState(true);
+    }
+
+    /**
+     * Replaces the whole in-memory state with a snapshot taken by {@link #snapshot()} on another node.
+     * Running speakers continue from the replicated elapsed time using the local clock. Nothing is
+     * written to disk: the primary owns the file.
+     */
+    public synchronized void applySnapshot(StoredState state) {
+        applyState(state, true);
+        // undo happens on the primary; a follower only mirrors it
+        history.reset(baseVersion());
+        changed.clear();
+        purgeTrash();
+    }
+
+    /**
+     * Restores the state before the last recorded change (roster, timers, limits and settings), persists it
+     * and returns true; false when there is nothing to undo.
+     */
+    public synchronized boolean undo() {
+        return restore(history.undo());
+    }
+
+    public synchronized boolean redo() {
+        return restore(history.redo());
+    }
+
+    public synchronized int undoCount() {
+        return history.undoCount();
+    }
+
+    public synchronized int redoCount() {
+        return history.redoCount();
+    }
+
+    // new history version from the slots flagged since the previous one; called by every persist
+    private void recordHistory() {
+        if (history == null) {
+            return;
+        }
+        History.Version current = history.current();
+        History.Settings settings = settings();
+        if (changed.isEmpty() && settings.equals(current.settings())) {
+            return;
+        }
+        boolean settingsOnly = changed.isEmpty();
+        PersistentVector.Editor<History.Entry> edit = current.slots().edit();
+        for (int slot = changed.nextSetBit(0); slot >= 0; slot = changed.nextSetBit(slot + 1)) {
+            Speaker s = slot < timers.used() ? speakers.get(slot) : null;
+            edit.set(slot, s == null ? null : entryOf(s));
+        }
+        changed.clear();
+        History.Version next = new History.Version(history.nextSeq(), edit.build(), timers.used(), speakers.head(),
+                speakers.tail(), speakers.size(), settings);
+        if (settingsOnly) {
+            history.pushSettings(next, System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(historyCoalesceMillis));
+        } else {
+            history.push(next);
+        }
+        purgeTrash();
+    }
+
+    private History.Version baseVersion() {
+        PersistentVector.Editor<History.Entry> edit = PersistentVector.<History.Entry>empty().edit();
+        for (Speaker s : speakers) {
+            edit.set(s.getSlot(), entryOf(s));
+        }
+        return new History.Version(history.nextSeq(), edit.build(), timers.used(), speakers.head(),
+                speakers.tail(), speakers.size(), settings());
+    }
+
+    private boolean restore(History.Version v) {
+        if (v == null) {
+            return false;
+        }
+        Map<String, Speaker> before = new HashMap<>(byId);
+        Set<String> runningBefore = new HashSet<>();
+        for (Speaker s : speakers) {
+            if (timers.isRunning(s.getSlot())) {
+                runningBefore.add(s.getId());
+            }
+        }
+        timers.clear();
+        speakers.clear();
+        byId.clear();
+        for (int slot = 0; slot < v.slotCount(); slot++) {
+            History.Entry e = v.slots().get(slot);
+            if (e == null) {
+                timers.restoreFree(slot);
+                continue;
+            }
+            Speaker s = new Speaker();
+            s.setId(e.id());
+            s.setName(e.name());
+            s.setFaceUrl(e.faceUrl());
+            s.setImageFilename(e.imageFilename());
+            s.setLimitMillis(e.limitMillis());
+            s.setWarnMillis(e.warnMillis());
+            s.setSlot(slot);
+            timers.restore(slot, e.accumulatedNanos(), e.startNanos(), e.running());
+            speakers.restore(s, e.prev(), e.next());
+            byId.put(s.getId(), s);
+        }
+        speakers.restoreEnds(v.head(), v.tail(), v.size());
+        applySettings(v.settings());
+        changed.clear();
+
+        // images follow their speakers in and out of the trash
+        for (Speaker s : speakers) {
+            untrashImage(s.getImageFilename());
+        }
+        for (Speaker old : before.values()) {
+            Speaker now = byId.get(old.getId());
+            if (old.getImageFilename() != null && (now == null || !old.getImageFilename().equals(now.getImageFilename()))) {
+                trashImage(old.getImageFilename());
+            }
+        }
+        // reschedule threshold alerts for whatever runs now and cancel the rest
+        long now = TimerTable.now();
+        for (Speaker s : speakers) {
+            if (timers.isRunning(s.getSlot()) || runningBefore.contains(s.getId())) {
+                fireTimerChanged(s, now);
+            }
+        }
+        for (String id : runningBefore) {
+            if (!byId.containsKey(id)) {
+                timerChanged.fire(new TimerChanged(id, false, 0L, 0L, 0L));
+            }
+        }
+        save();
+        return true;
+    }
+
+    private History.Entry entryOf(Speaker s) {
+        int slot = s.getSlot();
+        return new History.Entry(s.getId(), s.getName(), s.getFaceUrl(), s.getImageFilename(), s.getLimitMillis(),
+                s.getWarnMillis(), timers.accumulatedNanos(slot), timers.startNanos(slot), timers.isRunning(slot),
+                speakers.prev(slot), speakers.next(slot));
+    }
+
+    private History.Settings settings() {
+        return new History.Settings(autoStopOnStart, title, uiCardWidth, uiTextScale, uiActionSize, uiCardWidthMain,
+                uiTextScaleMain, defaultLimitMillis, defaultWarnMillis, limitAction);
+    }
+
+    private void applySettings(History.Settings st) {
+        autoStopOnStart = st.autoStopOnStart();
+        title = st.title();
+        uiCardWidth = st.uiCardWidth();
+        uiTextScale = st.uiTextScale();
+        uiActionSize = st.uiActionSize();
+        uiCardWidthMain = st.uiCardWidthMain();
+        uiTextScaleMain = st.uiTextScaleMain();
+        defaultLimitMillis = st.defaultLimitMillis();
+        defaultWarnMillis = st.defaultWarnMillis();
+        limitAction = st.limitAction();
+    }
+
+    private StoredState storedState(boolean live) {
+        long now = TimerTable.now();
+        List<Speaker> saved = new ArrayList<>(speakers.size());
+        for (Speaker s : speakers) {
+            Speaker c = copyOf(s, now);
+            c.setRunning(live && c.isRunning()); // persisted as stopped
+            saved.add(c);
+        }
+        return new StoredState(StoredState.VERSION, autoStopOnStart, title, uiCardWidth, uiTextScale, uiActionSize,
+                uiCardWidthMain, uiTextScaleMain, defaultLimitMillis, defaultWarnMillis, limitAction, saved);
+    }
+
+    private void applyState(StoredState state, boolean live) {
+        if (state.autoStopOnStart() != null) {
+            autoStopOnStart = state.autoStopOnStart();
+        }
+        title = state.title() == null ? defaultTitle : state.title();
+        uiCardWidth = state.uiCardWidth() == null ? uiCardWidth : state.uiCardWidth();
+        uiTextScale = state.uiTextScale() == null ? uiTextScale : state.uiTextScale();
+        uiActionSize = state.uiActionSize() == null ? uiActionSize : state.uiActionSize();
+        uiCardWidthMain = state.uiCardWidthMain() == null ? uiCardWidthMain : state.uiCardWidthMain();
+        uiTextScaleMain = state.uiTextScaleMain() == null ? uiTextScaleMain : state.uiTextScaleMain();
+        defaultLimitMillis = state.defaultLimitMillis() == null ? defaultLimitMillis : state.defaultLimitMillis();
+        defaultWarnMillis = state.defaultWarnMillis() == null ? defaultWarnMillis : state.defaultWarnMillis();
+        limitAction = parseLimitAction(state.limitAction() == null ? limitAction : state.limitAction());
+        List<Speaker> loaded = state.speakers() == null ? List.of() : state.speakers();
+
+        // sanitize: persisted files are always stopped, live snapshots resume on the local clock
+        long now = TimerTable.now();
+        timers.clear();
+        byId.clear();
+        speakers.clear();
+        for (Speaker s : loaded) {
+            s.setSlot(timers.allocate(s.getElapsedMillis()));
+            if (live && s.isRunning()) {
+                timers.start(s.getSlot(), now);
+            }
+            s.setRunning(false);
+            byId.put(s.getId(), s);
+            speakers.append(s);
+        }
     }
 }
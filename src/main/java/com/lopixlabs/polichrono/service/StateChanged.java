@@ -0,0 +1,7 @@
+package com.lopixlabs.polichrono.service;
+
+/**
+ * CDI event fired by {@link SpeakerStore} after every persisted mutation.
+ */
+public record StateChanged() {
+}
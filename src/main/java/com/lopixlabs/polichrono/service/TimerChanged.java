@@ -0,0 +1,8 @@
+package com.lopixlabs.polichrono.service;
+
+/**
+ * CDI event fired by {@link SpeakerStore} whenever a speaker's timer starts, stops, resets, is deleted or gets
+ * a new limit. Limits are the effective ones (speaker value or store default, 0 = none).
+ */
+public record TimerChanged(String id, boolean running, long elapsedMillis, long limitMillis, long warnMillis) {
+}
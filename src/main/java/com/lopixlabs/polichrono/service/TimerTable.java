@@ -0,0 +1,167 @@
+package com.lopixlabs.polichrono.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Timer hot state for every speaker, stored as parallel primitive arrays indexed by slot: accumulated
+ * elapsed time, start timestamp and running flag. Time comes from {@link System#nanoTime()}, so wall clock
+ * jumps never affect elapsed values, and reading the current elapsed time allocates nothing.
+ * <p>
+ * Every slot written is flagged in the {@code changed} set shared with {@link RosterOrder}, so the store's
+ * {@link History} only captures what changed since the last snapshot.
+ * <p>
+ * Not thread-safe: guarded by the {@link SpeakerStore} lock.
+ */
+final class TimerTable {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private long[] accumulatedNanos;
+    private long[] startNanos;
+    private boolean[] running;
+    // released slots, reused before growing
+    private int[] free;
+    private int freeCount;
+    private int used;
+    private int runningCount;
+    private final BitSet changed;
+
+    TimerTable(int initialCapacity, BitSet changed) {
+        this.changed = changed;
+        int cap = Math.max(8, initialCapacity);
+        accumulatedNanos = new long[cap];
+        startNanos = new long[cap];
+        running = new boolean[cap];
+        free = new int[cap];
+    }
+
+    static long now() {
+        return System.nanoTime();
+    }
+
+    int allocate(long elapsedMillis) {
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            if (used == running.length) {
+                grow();
+            }
+            slot = used++;
+        }
+        accumulatedNanos[slot] = Math.max(0, elapsedMillis) * NANOS_PER_MILLI;
+        startNanos[slot] = 0L;
+        running[slot] = false;
+        changed.set(slot);
+        return slot;
+    }
+
+    void release(int slot) {
+        if (running[slot]) {
+            running[slot] = false;
+            runningCount--;
+        }
+        accumulatedNanos[slot] = 0L;
+        free[freeCount++] = slot;
+        changed.set(slot);
+    }
+
+    void clear() {
+        Arrays.fill(running, 0, used, false);
+        used = 0;
+        freeCount = 0;
+        runningCount = 0;
+    }
+
+    void start(int slot, long now) {
+        if (!running[slot]) {
+            running[slot] = true;
+            startNanos[slot] = now;
+            runningCount++;
+            changed.set(slot);
+        }
+    }
+
+    void stop(int slot, long now) {
+        if (running[slot]) {
+            accumulatedNanos[slot] += Math.max(0, now - startNanos[slot]);
+            running[slot] = false;
+            runningCount--;
+            changed.set(slot);
+        }
+    }
+
+    void reset(int slot) {
+        if (running[slot]) {
+            running[slot] = false;
+            runningCount--;
+        }
+        accumulatedNanos[slot] = 0L;
+        changed.set(slot);
+    }
+
+    /**
+     * Puts back a slot exactly as captured by {@link #accumulatedNanos}/{@link #startNanos}/{@link #isRunning},
+     * after {@link #clear()}. Slots must be restored in increasing order, free ones with {@link #restoreFree}.
+     */
+    void restore(int slot, long accumulated, long start, boolean isRunning) {
+        ensureUsed(slot);
+        accumulatedNanos[slot] = accumulated;
+        startNanos[slot] = start;
+        running[slot] = isRunning;
+        if (isRunning) {
+            runningCount++;
+        }
+    }
+
+    void restoreFree(int slot) {
+        ensureUsed(slot);
+        accumulatedNanos[slot] = 0L;
+        running[slot] = false;
+        free[freeCount++] = slot;
+    }
+
+    int used() {
+        return used;
+    }
+
+    long accumulatedNanos(int slot) {
+        return accumulatedNanos[slot];
+    }
+
+    long startNanos(int slot) {
+        return startNanos[slot];
+    }
+
+    boolean isRunning(int slot) {
+        return running[slot];
+    }
+
+    long elapsedMillis(int slot, long now) {
+        long nanos = accumulatedNanos[slot];
+        if (running[slot]) {
+            nanos += Math.max(0, now - startNanos[slot]);
+        }
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    boolean anyRunning() {
+        return runningCount > 0;
+    }
+
+    private void ensureUsed(int slot) {
+        while (slot >= running.length) {
+            grow();
+        }
+        used = Math.max(used, slot + 1);
+    }
+
+    private void grow() {
+        int cap = running.length * 2;
+        accumulatedNanos = Arrays.copyOf(accumulatedNanos, cap);
+        startNanos = Arrays.copyOf(startNanos, cap);
+        running = Arrays.copyOf(running, cap);
+        free = Arrays.copyOf(free, cap);
+    }
+}
@@ -0,0 +1,175 @@
+package com.lopixlabs.polichrono.timing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel: a ring of buckets, one per tick, each holding a doubly linked list of timeouts.
+ * Scheduling and cancelling are O(1) whatever the number of pending timeouts; a timeout further away than one
+ * revolution simply waits for extra rounds in its bucket. Driven by {@link System#nanoTime()}, so wall clock
+ * changes do not move deadlines.
+ * <p>
+ * A single daemon thread advances the wheel and runs expired tasks outside the wheel lock. When nothing is
+ * pending it sleeps until the next {@link #schedule}.
+ */
+public final class TimingWheel implements AutoCloseable {
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long startNanos;
+    private final Thread worker;
+    // guarded by this
+    private long processedTick;
+    private int pending;
+    private boolean closed;
+
+    public TimingWheel(String name, long tickMillis, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = Thread.ofPlatform().daemon().name(name).start(this::run);
+    }
+
+    /**
+     * Runs {@code task} once, {@code delayMillis} from now (rounded up to the next tick).
+     */
+    public synchronized Timeout schedule(long delayMillis, Runnable task) {
+        long elapsed = System.nanoTime() - startNanos;
+        if (pending == 0) {
+            // idle wheel: nothing can expire in the ticks the worker slept through
+            processedTick = Math.max(processedTick, elapsed / tickNanos - 1);
+        }
+        // round up so a timeout never fires before its delay
+        long deadline = ceilDiv(elapsed + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)), tickNanos);
+        if (deadline <= processedTick) {
+            deadline = processedTick + 1;
+        }
+        Timeout t = new Timeout(task, (deadline - processedTick - 1) / buckets.length);
+        int idx = (int) (deadline & mask);
+        t.bucket = idx;
+        t.next = buckets[idx];
+        if (t.next != null) {
+            t.next.prev = t;
+        }
+        buckets[idx] = t;
+        if (pending++ == 0) {
+            notifyAll();
+        }
+        return t;
+    }
+
+    /**
+     * Cancels a pending timeout; no-op if it already fired or was cancelled.
+     */
+    public synchronized void cancel(Timeout t) {
+        if (t == null || t.bucket < 0) {
+            return;
+        }
+        unlink(t);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        worker.interrupt();
+    }
+
+    private void run() {
+        List<Timeout> expired = new ArrayList<>();
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (!closed && pending == 0) {
+                        wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    long now = currentTick();
+                    if (now <= processedTick) {
+                        long sleep = startNanos + (processedTick + 1) * tickNanos - System.nanoTime();
+                        TimeUnit.NANOSECONDS.timedWait(this, Math.max(1, sleep));
+                        continue;
+                    }
+                    while (processedTick < now) {
+                        processedTick++;
+                        expireBucket((int) (processedTick & mask), expired);
+                    }
+                } catch (InterruptedException e) {
+                    if (closed) {
+                        return;
+                    }
+                }
+            }
+            for (Timeout t : expired) {
+                try {
+                    t.task.run();
+                } catch (RuntimeException ignored) {
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    private void expireBucket(int idx, List<Timeout> expired) {
+        Timeout t = buckets[idx];
+        while (t != null) {
+            Timeout next = t.next;
+            if (t.rounds <= 0) {
+                unlink(t);
+                expired.add(t);
+            } else {
+                t.rounds--;
+            }
+            t = next;
+        }
+    }
+
+    private void unlink(Timeout t) {
+        if (t.prev != null) {
+            t.prev.next = t.next;
+        } else {
+            buckets[t.bucket] = t.next;
+        }
+        if (t.next != null) {
+            t.next.prev = t.prev;
+        }
+        t.prev = null;
+        t.next = null;
+        t.bucket = -1;
+        pending--;
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    /**
+     * Handle returned by {@link #schedule}, used to cancel.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private long rounds;
+        private int bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long rounds) {
+            this.task = task;
+            this.rounds = rounds;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.lopixlabs.polichrono.ws;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the WebSocket admission queue and time-to-first-frame of the most recent admissions: from
+ * {@code @OnOpen} until the initial frame was written.
+ */
+final class AdmissionStats {
+
+    private final LatencySamples firstFrame = new LatencySamples();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    void admitted(long firstFrameNanos) {
+        firstFrame.add(firstFrameNanos);
+    }
+
+    void rejected() {
+        rejected.increment();
+    }
+
+    void timedOut() {
+        timedOut.increment();
+    }
+
+    Map<String, Object> snapshot(int queued) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("admitted", firstFrame.count());
+        out.put("rejected", rejected.sum());
+        out.put("timedOut", timedOut.sum());
+        out.put("queued", queued);
+        firstFrame.putPercentiles(out, "firstFrame");
+        return out;
+    }
+}
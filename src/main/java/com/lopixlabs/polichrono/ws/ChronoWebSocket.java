@@ -1,18 +1,43 @@
 package com.lopixlabs.polichrono.ws;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lopixlabs.polichrono.codec.Frames;
+import com.lopixlabs.polichrono.relay.RelayClient;
+import com.lopixlabs.polichrono.replication.ReplicationFollower;
+import com.lopixlabs.polichrono.replication.ReplicationPrimary;
 import com.lopixlabs.polichrono.service.SpeakerStore;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.websockets.next.CloseReason;
 import io.quarkus.websockets.next.OnClose;
 import io.quarkus.websockets.next.OnOpen;
+import io.quarkus.websockets.next.OnTextMessage;
+import io.quarkus.websockets.next.UserData;
 import io.quarkus.websockets.next.WebSocket;
 import io.quarkus.websockets.next.WebSocketConnection;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import jakarta.annotation.PostConstruct;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 @WebSocket(path = "/ws")
 @ApplicationScoped
@@ -21,157 +46,326 @@ public class ChronoWebSocket {
     @Inject
     SpeakerStore store;
 
+    @Inject
+    ReplicationPrimary replication;
+
+    @Inject
+    RelayClient relay;
+
+    @Inject
+    ReplicationFollower follower;
+
     @Inject
     ObjectMapper mapper;
 
-    private final Set<WebSocketConnection> connections = ConcurrentHashMap.newKeySet();
+    // minimum time between two frames of the same settings type (autoStop, title, size, sizeMain, limits)
+    @ConfigProperty(name = "chrono.ws.settings-interval-millis", defaultValue = "100")
+    long settingsIntervalMillis;
+    // a reload spreads the clients' reloads evenly over this window
+    @ConfigProperty(name = "chrono.ws.reload-window-millis", defaultValue = "5000")
+    long reloadWindowMillis;
+    // new connections get their initial frame from this many threads; beyond the queue they are refused
+    @ConfigProperty(name = "chrono.ws.admission-workers", defaultValue = "2")
+    int admissionWorkers;
+    @ConfigProperty(name = "chrono.ws.admission-queue-size", defaultValue = "256")
+    int admissionQueueSize;
+    // a connection that does not take its initial frame within this time is closed, freeing the worker
+    @ConfigProperty(name = "chrono.ws.admission-timeout-millis", defaultValue = "5000")
+    long admissionTimeoutMillis;
+
+    private static final UserData.TypedKey<Partition> PARTITION = new UserData.TypedKey<>("chrono.partition");
+    // initial frames sent to one connection at most, when broadcasts keep racing its admission
+    private static final int MAX_INIT_ATTEMPTS = 3;
 
+    // connections grouped by the event loop that owns them, keyed by the loop's thread
+    private final Map<Thread, Partition> partitions = new ConcurrentHashMap<>();
+    // from a broadcast call until every loop has written it
+    private final LatencySamples fanOut = new LatencySamples();
+    // incremented before each broadcast picks its partitions, see admit
+    private final AtomicLong broadcastSeq = new AtomicLong();
+    private final Map<String, ConflatedFrame> settings = new ConcurrentHashMap<>();
+    // sends conflated settings frames in order, one at a time
+    private final ScheduledExecutorService settingsFlusher = Executors.newSingleThreadScheduledExecutor(
+            r -> Thread.ofPlatform().daemon().name("ws-settings").unstarted(r));
+    private final AdmissionStats admissionStats = new AdmissionStats();
+    private ThreadPoolExecutor admission;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threads = new AtomicInteger();
+        admission = new ThreadPoolExecutor(admissionWorkers, admissionWorkers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, admissionQueueSize)),
+                r -> Thread.ofPlatform().daemon().name("ws-admission-" + threads.incrementAndGet()).unstarted(r));
+    }
+
+    // after a reload or a restart every screen reconnects at once: admit them a few at a time, the rest wait
+    // in a bounded queue and are turned away (1013, try again later) when it is full
     @OnOpen
     public void onOpen(WebSocketConnection connection) {
-        connections.add(connection);
-        // send initial state
+        long openedNanos = System.nanoTime();
+        // the connection's context, running on its event loop
+        Context context = Vertx.currentContext();
         try {
-            String payload = mapper.writeValueAsString(store.list());
-            connection.sendTextAndAwait(payload);
-        } catch (IOException e) {
-            // ignore
-        }
-        // send initial autoStop flag
-        try {
-            String cfg = mapper.writeValueAsString(Map.of("type", "autoStop", "enabled", store.isAutoStopOnStart()));
-            connection.sendTextAndAwait(cfg);
-        } catch (Exception ignored) {
-        }
-        // send initial title
-        try {
-            String t = mapper.writeValueAsString(Map.of("type", "title", "value", store.getTitle()));
-            connection.sendTextAndAwait(t);
-        } catch (Exception ignored) {
+            admission.execute(() -> admit(connection, context, openedNanos));
+        } catch (RejectedExecutionException e) {
+            admissionStats.rejected();
+            try {
+                connection.closeAndAwait(new CloseReason(1013, "Busy, try again later"));
+            } catch (Exception ignored) {
+            }
         }
-        // send initial UI size settings (admin)
+    }
+
+    private void admit(WebSocketConnection connection, Context context, long openedNanos) {
         try {
-            String sz = mapper.writeValueAsString(Map.of(
-                    "type", "size",
-                    "cardWidth", store.getUiCardWidth(),
-                    "textScale", store.getUiTextScale(),
-                    "actionSize", store.getUiActionSize()
-            ));
-            connection.sendTextAndAwait(sz);
+            for (int attempt = 1; ; attempt++) {
+                // the frame is built here, off the loop; a broadcast started meanwhile may have been dispatched
+                // to the loop before this connection joined, in which case the frame is built and sent again
+                long seen = broadcastSeq.get();
+                // relays have no local store: replay what upstream sent last
+                String init = Frames.init(relay.isRelay() ? relay.initialFrames() : initialFrames());
+                CompletableFuture<Boolean> sent = new CompletableFuture<>();
+                context.runOnContext(v -> {
+                    if (connection.isClosed()) {
+                        // gave up while queued
+                        sent.cancel(false);
+                        return;
+                    }
+                    if (connection.userData().get(PARTITION) == null) {
+                        Partition partition = partitions.computeIfAbsent(Thread.currentThread(),
+                                t -> new Partition(context, t.getName()));
+                        partition.add(connection);
+                        connection.userData().put(PARTITION, partition);
+                    }
+                    // broadcasts counted from now on reach this connection after the frame
+                    boolean current = broadcastSeq.get() == seen;
+                    connection.sendText(init).subscribe().with(ok -> sent.complete(current),
+                            sent::completeExceptionally);
+                });
+                // the worker stays busy until the frame is written: that is what bounds concurrent admissions.
+                // A client reading too slowly to take a large frame would hold it indefinitely, so it is dropped
+                boolean current;
+                try {
+                    current = sent.get(admissionTimeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    admissionStats.timedOut();
+                    context.runOnContext(v -> connection.close(new CloseReason(1013, "Too slow, try again later"))
+                            .subscribe().with(ok -> {
+                            }, err -> {
+                            }));
+                    return;
+                }
+                if (attempt == 1) {
+                    admissionStats.admitted(System.nanoTime() - openedNanos);
+                }
+                if (current || attempt == MAX_INIT_ATTEMPTS) {
+                    return;
+                }
+            }
         } catch (Exception ignored) {
         }
-        // send initial audience (main page) UI size settings
-        try {
-            String szm = mapper.writeValueAsString(Map.of(
-                    "type", "sizeMain",
-                    "cardWidth", store.getUiCardWidthMain(),
-                    "textScale", store.getUiTextScaleMain()
-            ));
-            connection.sendTextAndAwait(szm);
-        } catch (Exception ignored) {
+    }
+
+    /**
+     * Admission counters and time-to-first-frame of recent connections.
+     */
+    public Map<String, Object> admissionMetrics() {
+        return admissionStats.snapshot(admission.getQueue().size());
+    }
+
+    /**
+     * Per event loop: connections, and how long broadcasts waited for the loop and took to write.
+     */
+    public Map<String, Object> broadcastMetrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("broadcasts", fanOut.count());
+        fanOut.putPercentiles(out, "fanOut");
+        List<Map<String, Object>> loops = new ArrayList<>();
+        for (Partition p : partitions.values()) {
+            loops.add(p.snapshot());
         }
+        out.put("partitions", loops);
+        return out;
     }
 
     @OnClose
     public void onClose(WebSocketConnection connection) {
-        connections.remove(connection);
+        Partition partition = connection.userData().get(PARTITION);
+        if (partition != null) {
+            partition.run(() -> partition.remove(connection));
+        }
     }
 
-    public void broadcastState() {
-        String payload;
-        try {
-            payload = mapper.writeValueAsString(store.list());
-        } catch (IOException e) {
+    // commands from admin clients: {"type":"undo"} / {"type":"redo"}; relays are read-only, followers pass them
+    // on to the primary, which holds the history
+    @OnTextMessage
+    public void onMessage(String message) {
+        if (relay.isRelay()) {
             return;
         }
-        for (WebSocketConnection c : connections) {
-            try {
-                c.sendTextAndAwait(payload);
-            } catch (Exception ignored) {
-            }
-        }
-    }
-
-    public void broadcastAutoStop() {
-        String cfg;
+        String type;
         try {
-            cfg = mapper.writeValueAsString(Map.of("type", "autoStop", "enabled", store.isAutoStopOnStart()));
+            type = mapper.readTree(message).path("type").asText();
         } catch (Exception e) {
             return;
         }
-        for (WebSocketConnection c : connections) {
-            try {
-                c.sendTextAndAwait(cfg);
-            } catch (Exception ignored) {
+        if (follower.isFollower()) {
+            if ("undo".equals(type) || "redo".equals(type)) {
+                follower.forwardHistory(type);
             }
+            return;
+        }
+        boolean applied = switch (type) {
+            case "undo" -> store.undo();
+            case "redo" -> store.redo();
+            default -> false;
+        };
+        if (applied) {
+            broadcastAll();
         }
     }
 
+    public void broadcastState() {
+        broadcastRaw(store.stateJson());
+    }
+
+    public void broadcastAutoStop() {
+        broadcastSetting("autoStop", () -> Frames.autoStop(store.isAutoStopOnStart()));
+    }
+
     public void broadcastTitle() {
-        String msg;
-        try {
-            msg = mapper.writeValueAsString(Map.of("type", "title", "value", store.getTitle()));
-        } catch (Exception e) {
-            return;
-        }
-        for (WebSocketConnection c : connections) {
-            try {
-                c.sendTextAndAwait(msg);
-            } catch (Exception ignored) {
-            }
-        }
+        broadcastSetting("title", () -> Frames.title(store.getTitle()));
     }
 
     public void broadcastSize() {
-        String msg;
-        try {
-            msg = mapper.writeValueAsString(Map.of(
-                    "type", "size",
-                    "cardWidth", store.getUiCardWidth(),
-                    "textScale", store.getUiTextScale(),
-                    "actionSize", store.getUiActionSize()
-            ));
-        } catch (Exception e) {
-            return;
+        broadcastSetting("size", this::sizeFrame);
+    }
+
+    public void broadcastSizeMain() {
+        broadcastSetting("sizeMain", this::sizeMainFrame);
+    }
+
+    public void broadcastReloadMain() {
+        replication.publishFrame(Frames.reload(reloadWindowMillis));
+        broadcastReload(reloadWindowMillis);
+    }
+
+    /**
+     * Tells every client to reload, each at its own point of a {@code windowMillis} window so that their
+     * page, image and WebSocket requests do not all arrive together.
+     */
+    public void broadcastReload(long windowMillis) {
+        // each loop spreads its own connections over the window, shifted so that loops interleave:
+        // connection i of n on loop k of p reloads at (i * p + k) / (n * p) of the window
+        List<Partition> targets = new ArrayList<>(partitions.values());
+        int p = targets.size();
+        for (int k = 0; k < p; k++) {
+            int loop = k;
+            targets.get(k).send((i, n) -> Frames.reload(windowMillis, windowMillis * (i * p + loop) / ((long) n * p)),
+                    () -> {
+                    });
         }
-        for (WebSocketConnection c : connections) {
-            try {
-                c.sendTextAndAwait(msg);
-            } catch (Exception ignored) {
-            }
+    }
+
+    public void broadcastLimits() {
+        broadcastSetting("limits", this::limitsFrame);
+    }
+
+    // threshold crossing pushed by ThresholdAlerts; replicated because followers do not schedule their own
+    public void broadcastAlert(String id, String level) {
+        String msg = Frames.alert(id, level);
+        replication.publishFrame(msg);
+        broadcastRaw(msg);
+    }
+
+    // at most one frame per type and interval; the frame is built when sent, so the latest value always goes out
+    private void broadcastSetting(String type, Supplier<String> frame) {
+        if (settingsIntervalMillis <= 0) {
+            broadcastRaw(frame.get());
+            return;
         }
+        settings.computeIfAbsent(type, t -> new ConflatedFrame(frame)).request();
     }
 
-    public void broadcastSizeMain() {
-        String msg;
-        try {
-            msg = mapper.writeValueAsString(Map.of(
-                    "type", "sizeMain",
-                    "cardWidth", store.getUiCardWidthMain(),
-                    "textScale", store.getUiTextScaleMain()
-            ));
-        } catch (Exception e) {
+    // frames sent on open: state, then the settings autoStop, title, size, sizeMain, limits
+    private List<String> initialFrames() {
+        return List.of(store.stateJson(), Frames.autoStop(store.isAutoStopOnStart()), Frames.title(store.getTitle()),
+                sizeFrame(), sizeMainFrame(), limitsFrame());
+    }
+
+    private String sizeFrame() {
+        return Frames.size(store.getUiCardWidth(), store.getUiTextScale(), store.getUiActionSize());
+    }
+
+    private String sizeMainFrame() {
+        return Frames.sizeMain(store.getUiCardWidthMain(), store.getUiTextScaleMain());
+    }
+
+    private String limitsFrame() {
+        return Frames.limits(store.getDefaultLimitMillis(), store.getDefaultWarnMillis(), store.getLimitAction());
+    }
+
+    // re-broadcast everything, used when the whole state was replaced (e.g. replicated snapshot)
+    public void broadcastAll() {
+        broadcastState();
+        broadcastAutoStop();
+        broadcastTitle();
+        broadcastSize();
+        broadcastSizeMain();
+        broadcastLimits();
+    }
+
+    void onShutdown(@Observes ShutdownEvent ev) {
+        settingsFlusher.shutdownNow();
+        admission.shutdownNow();
+    }
+
+    // hands the same frame to every event loop; each writes to its own connections in parallel
+    public void broadcastRaw(String msg) {
+        broadcastSeq.incrementAndGet();
+        List<Partition> targets = new ArrayList<>(partitions.values());
+        if (targets.isEmpty()) {
             return;
         }
-        for (WebSocketConnection c : connections) {
-            try {
-                c.sendTextAndAwait(msg);
-            } catch (Exception ignored) {
+        long start = System.nanoTime();
+        AtomicInteger remaining = new AtomicInteger(targets.size());
+        Runnable done = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                fanOut.add(System.nanoTime() - start);
             }
+        };
+        for (Partition p : targets) {
+            p.send((i, n) -> msg, done);
         }
     }
 
-    public void broadcastReloadMain() {
-        String msg;
-        try {
-            msg = mapper.writeValueAsString(Map.of("type", "reload"));
-        } catch (Exception e) {
-            return;
+    private final class ConflatedFrame {
+        private final Supplier<String> frame;
+        // guarded by this
+        private boolean scheduled;
+        private long lastSentNanos;
+
+        ConflatedFrame(Supplier<String> frame) {
+            this.frame = frame;
+            this.lastSentNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(settingsIntervalMillis);
         }
-        for (WebSocketConnection c : connections) {
-            try {
-                c.sendTextAndAwait(msg);
-            } catch (Exception ignored) {
+
+        synchronized void request() {
+            if (scheduled) {
+                // the pending send will pick up this change
+                return;
+            }
+            scheduled = true;
+            long delay = lastSentNanos + TimeUnit.MILLISECONDS.toNanos(settingsIntervalMillis) - System.nanoTime();
+            settingsFlusher.schedule(this::send, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        }
+
+        private void send() {
+            synchronized (this) {
+                scheduled = false;
+                lastSentNanos = System.nanoTime();
             }
+            broadcastRaw(frame.get());
         }
     }
 }
@@ -0,0 +1,51 @@
+package com.lopixlabs.polichrono.ws;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The last {@value #SIZE} durations of something, summarized as percentiles in milliseconds.
+ */
+final class LatencySamples {
+
+    private static final int SIZE = 1024;
+
+    // guarded by this
+    private final long[] nanos = new long[SIZE];
+    private long count;
+
+    synchronized void add(long durationNanos) {
+        nanos[(int) (count++ % SIZE)] = durationNanos;
+    }
+
+    /**
+     * Number of durations recorded since start, including the ones no longer retained.
+     */
+    synchronized long count() {
+        return count;
+    }
+
+    /**
+     * Adds {@code <prefix>P50Ms}, {@code P95Ms}, {@code P99Ms} and {@code MaxMs} to {@code out}.
+     */
+    void putPercentiles(Map<String, Object> out, String prefix) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(nanos, (int) Math.min(count, SIZE));
+        }
+        Arrays.sort(sorted);
+        out.put(prefix + "P50Ms", percentile(sorted, 50));
+        out.put(prefix + "P95Ms", percentile(sorted, 95));
+        out.put(prefix + "P99Ms", percentile(sorted, 99));
+        out.put(prefix + "MaxMs", percentile(sorted, 100));
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int i = Math.max(0, (int) Math.ceil(sorted.length * p / 100.0) - 1);
+        return sorted[i] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
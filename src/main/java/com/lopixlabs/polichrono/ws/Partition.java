@@ -0,0 +1,108 @@
+package com.lopixlabs.polichrono.ws;
+
+import io.quarkus.websockets.next.UserData;
+import io.quarkus.websockets.next.WebSocketConnection;
+import io.vertx.core.Context;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The connections owned by one Vert.x event loop. The set is only touched on that loop, so a broadcast is one
+ * task per loop that writes to each connection directly, with no locking and no per-connection handoff.
+ */
+final class Partition {
+
+    /**
+     * Frame for the {@code index}-th of {@code count} connections of a partition.
+     */
+    @FunctionalInterface
+    interface FrameFor {
+        String frame(int index, int count);
+    }
+
+    // a connection's position in connections, so removing it is O(1) when many close at once
+    private static final UserData.TypedKey<Integer> INDEX = new UserData.TypedKey<>("chrono.partition.index");
+
+    private final Context context;
+    private final String loop;
+    // only accessed on the loop thread; order does not matter
+    private final List<WebSocketConnection> connections = new ArrayList<>();
+    private volatile int size;
+    // dispatch to start of the task on the loop, and writing to all connections
+    private final LatencySamples queue = new LatencySamples();
+    private final LatencySamples write = new LatencySamples();
+
+    /**
+     * @param context any context running on the loop, e.g. that of the partition's first connection
+     */
+    Partition(Context context, String loop) {
+        this.context = context;
+        this.loop = loop;
+    }
+
+    /**
+     * Runs {@code task} on the loop; connections can then be added or removed.
+     */
+    void run(Runnable task) {
+        context.runOnContext(v -> task.run());
+    }
+
+    // on the loop
+    void add(WebSocketConnection connection) {
+        connection.userData().put(INDEX, connections.size());
+        connections.add(connection);
+        size = connections.size();
+    }
+
+    // on the loop; the last connection takes the freed place
+    void remove(WebSocketConnection connection) {
+        Integer i = connection.userData().remove(INDEX);
+        if (i == null || i >= connections.size() || connections.get(i) != connection) {
+            return;
+        }
+        WebSocketConnection last = connections.remove(connections.size() - 1);
+        if (last != connection) {
+            connections.set(i, last);
+            last.userData().put(INDEX, i);
+        }
+        size = connections.size();
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Writes to every connection on the loop; {@code done} runs there once all writes were issued.
+     */
+    void send(FrameFor frames, Runnable done) {
+        long dispatched = System.nanoTime();
+        context.runOnContext(v -> {
+            long start = System.nanoTime();
+            int n = connections.size();
+            for (int i = 0; i < n; i++) {
+                connections.get(i).sendText(frames.frame(i, n)).subscribe().with(ok -> {
+                }, err -> {
+                    // closed meanwhile, onClose removes it
+                });
+            }
+            long end = System.nanoTime();
+            queue.add(start - dispatched);
+            write.add(end - start);
+            done.run();
+        });
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("loop", loop);
+        out.put("connections", size);
+        out.put("broadcasts", write.count());
+        queue.putPercentiles(out, "queue");
+        write.putPercentiles(out, "write");
+        return out;
+    }
+}
@@ -0,0 +1,94 @@
+package com.lopixlabs.polichrono.ws;
+
+import com.lopixlabs.polichrono.service.SpeakerStore;
+import com.lopixlabs.polichrono.service.TimerChanged;
+import com.lopixlabs.polichrono.timing.TimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fires speaking-limit thresholds (warning, overtime) exactly when a running speaker crosses them.
+ * <p>
+ * Each start schedules the projected crossing times on a {@link TimingWheel} and each stop cancels them, both
+ * O(1). Thresholds are pushed to {@code /ws} clients as {@code alert} messages; on overtime the store's limit
+ * action (stop or advance to the next speaker) is applied.
+ */
+@ApplicationScoped
+public class ThresholdAlerts {
+
+    @ConfigProperty(name = "chrono.limits.tick-millis", defaultValue = "10")
+    long tickMillis;
+
+    @Inject
+    SpeakerStore store;
+
+    @Inject
+    ChronoWebSocket ws;
+
+    private final Map<String, Scheduled> scheduled = new ConcurrentHashMap<>();
+    private TimingWheel wheel;
+
+    @PostConstruct
+    void init() {
+        wheel = new TimingWheel("threshold-alerts", tickMillis, 512);
+    }
+
+    @PreDestroy
+    void close() {
+        wheel.close();
+    }
+
+    void onTimerChanged(@Observes TimerChanged ev) {
+        Scheduled old = scheduled.remove(ev.id());
+        if (old != null) {
+            wheel.cancel(old.warning);
+            wheel.cancel(old.overtime);
+        }
+        if (!ev.running() || ev.limitMillis() <= 0) {
+            return;
+        }
+        long toLimit = ev.limitMillis() - ev.elapsedMillis();
+        if (toLimit <= 0) {
+            // resumed while already in overtime: nothing left to announce
+            return;
+        }
+        long toWarning = ev.warnMillis() > 0 ? toLimit - ev.warnMillis() : 0;
+        Scheduled entry = new Scheduled();
+        // registered first: a threshold due within one tick may expire before schedule() returns
+        scheduled.put(ev.id(), entry);
+        if (toWarning > 0) {
+            entry.warning = wheel.schedule(toWarning, () -> fire(ev.id(), entry, "warning"));
+        }
+        entry.overtime = wheel.schedule(toLimit, () -> fire(ev.id(), entry, "overtime"));
+    }
+
+    private void fire(String id, Scheduled entry, String level) {
+        // superseded by a stop/start that raced with the expiry
+        if (scheduled.get(id) != entry) {
+            return;
+        }
+        if (!"overtime".equals(level)) {
+            ws.broadcastAlert(id, level);
+            return;
+        }
+        // checked again under the store lock, together with the action, in case a start/stop got in between
+        if (store.onLimitReached(id, () -> scheduled.remove(id, entry))) {
+            ws.broadcastAlert(id, level);
+            if (!"none".equals(store.getLimitAction())) {
+                ws.broadcastState();
+            }
+        }
+    }
+
+    private static final class Scheduled {
+        private volatile TimingWheel.Timeout warning;
+        private volatile TimingWheel.Timeout overtime;
+    }
+}
@@ -0,0 +1,140 @@
+package com.lopixlabs.polichrono.persistence;
+
+import com.lopixlabs.polichrono.model.Speaker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedFileRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void saveThenLoadInAnotherInstance() throws Exception {
+        Path file = dir.resolve("speakers.bin");
+        MappedFileRepository repo = new MappedFileRepository(file);
+        assertFalse(repo.exists());
+        assertNull(repo.load());
+
+        repo.save(state("Débat ✓", List.of(
+                speaker("a", "Ann", "a.png", 1_500L, 60_000L, 10_000L),
+                speaker("b", "Bob", null, 0L, null, null))));
+        assertTrue(repo.exists());
+
+        StoredState loaded = new MappedFileRepository(file).load();
+        assertEquals(StoredState.VERSION, loaded.version());
+        assertEquals(false, loaded.autoStopOnStart());
+        assertEquals("Débat ✓", loaded.title());
+        assertEquals(400, loaded.uiCardWidth());
+        assertEquals(110, loaded.uiTextScale());
+        assertEquals(48, loaded.uiActionSize());
+        assertEquals(300, loaded.uiCardWidthMain());
+        assertEquals(90, loaded.uiTextScaleMain());
+        assertEquals(120_000L, loaded.defaultLimitMillis());
+        assertEquals(20_000L, loaded.defaultWarnMillis());
+        assertEquals("stop", loaded.limitAction());
+
+        List<Speaker> speakers = loaded.speakers();
+        assertEquals(2, speakers.size());
+        Speaker a = speakers.get(0);
+        assertEquals("a", a.getId());
+        assertEquals("Ann", a.getName());
+        assertEquals("a.png", a.getImageFilename());
+        assertEquals(1_500L, a.getElapsedMillis());
+        assertEquals(60_000L, a.getLimitMillis());
+        assertEquals(10_000L, a.getWarnMillis());
+        Speaker b = speakers.get(1);
+        assertEquals("b", b.getId());
+        assertNull(b.getImageFilename());
+        assertNull(b.getFaceUrl());
+        assertNull(b.getLimitMillis());
+        assertNull(b.getWarnMillis());
+    }
+
+    @Test
+    void saveTimerWritesOneRecordInPlace() throws Exception {
+        Path file = dir.resolve("speakers.bin");
+        MappedFileRepository repo = new MappedFileRepository(file);
+        assertTrue(repo.writesTimersInPlace());
+        repo.save(state("t", List.of(
+                speaker("a", "Ann", null, 0L, null, null),
+                speaker("b", "Bob", null, 0L, null, null))));
+
+        repo.saveTimer("b", 42_000L, true);
+        // not in the last save: ignored
+        repo.saveTimer("missing", 1L, true);
+
+        List<Speaker> speakers = new MappedFileRepository(file).load().speakers();
+        assertEquals(2, speakers.size());
+        assertEquals(0L, speakers.get(0).getElapsedMillis());
+        assertFalse(speakers.get(0).isRunning());
+        assertEquals(42_000L, speakers.get(1).getElapsedMillis());
+        assertTrue(speakers.get(1).isRunning());
+        assertEquals("Bob", speakers.get(1).getName());
+    }
+
+    @Test
+    void loadedRepositoryWritesTimersToTheLoadedRecords() throws Exception {
+        Path file = dir.resolve("speakers.bin");
+        new MappedFileRepository(file).save(state("t", List.of(speaker("a", "Ann", null, 5L, null, null))));
+
+        MappedFileRepository repo = new MappedFileRepository(file);
+        repo.load();
+        repo.saveTimer("a", 7_000L, false);
+
+        assertEquals(7_000L, new MappedFileRepository(file).load().speakers().get(0).getElapsedMillis());
+    }
+
+    @Test
+    void growsAndShrinksTheRoster() throws Exception {
+        Path file = dir.resolve("speakers.bin");
+        MappedFileRepository repo = new MappedFileRepository(file);
+        List<Speaker> many = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            many.add(speaker("id-" + i, "Speaker " + i, null, i, null, null));
+        }
+        repo.save(state("big", many));
+        assertEquals(5_000, new MappedFileRepository(file).load().speakers().size());
+
+        repo.save(state("small", List.of(speaker("x", "X", null, 0L, null, null))));
+        StoredState loaded = new MappedFileRepository(file).load();
+        assertEquals("small", loaded.title());
+        assertEquals(List.of("x"), loaded.speakers().stream().map(Speaker::getId).toList());
+    }
+
+    @Test
+    void rejectsOtherFiles() throws Exception {
+        Path file = dir.resolve("speakers.bin");
+        Files.write(file, new byte[256]);
+        assertThrows(IOException.class, () -> new MappedFileRepository(file).load());
+    }
+
+    private static StoredState state(String title, List<Speaker> speakers) {
+        return new StoredState(StoredState.VERSION, false, title, 400, 110, 48, 300, 90, 120_000L, 20_000L, "stop",
+                speakers);
+    }
+
+    private static Speaker speaker(String id, String name, String image, long elapsedMillis, Long limitMillis,
+                                   Long warnMillis) {
+        Speaker s = new Speaker();
+        s.setId(id);
+        s.setName(name);
+        s.setImageFilename(image);
+        s.setElapsedMillis(elapsedMillis);
+        s.setLimitMillis(limitMillis);
+        s.setWarnMillis(warnMillis);
+        return s;
+    }
+}
@@ -0,0 +1,67 @@
+package com.lopixlabs.polichrono.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CsvReaderTest {
+
+    @Test
+    void readsPlainRecords() throws IOException {
+        assertEquals(List.of(List.of("id", "name"), List.of("1", "Ann"), List.of("2", "")),
+                readAll("id,name\n1,Ann\n2,\n"));
+    }
+
+    @Test
+    void readsQuotedFields() throws IOException {
+        List<List<String>> rows = readAll("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\r\nx,\"\",y\r\n");
+        assertEquals(List.of("a,b", "say \"hi\"", "two\nlines"), rows.get(0));
+        assertEquals(List.of("x", "", "y"), rows.get(1));
+        assertEquals(2, rows.size());
+    }
+
+    @Test
+    void skipsBlankLinesAndHandlesMissingFinalNewline() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of("b", "c")), readAll("\na\n\r\n\nb,c"));
+        assertEquals(List.of(), readAll(""));
+    }
+
+    @Test
+    void quoteOnlyWhenNeeded() {
+        assertEquals("Ann", CsvReader.quote("Ann"));
+        assertEquals("\"a,b\"", CsvReader.quote("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", CsvReader.quote("say \"hi\""));
+        assertEquals("\"two\nlines\"", CsvReader.quote("two\nlines"));
+        assertEquals("\"cr\r\"", CsvReader.quote("cr\r"));
+    }
+
+    @Test
+    void quotedValuesReadBackUnchanged() throws IOException {
+        List<String> values = List.of("plain", "a,b", "say \"hi\"", "two\r\nlines", "\"", "");
+        StringBuilder line = new StringBuilder();
+        for (String v : values) {
+            if (!line.isEmpty()) {
+                line.append(',');
+            }
+            line.append(CsvReader.quote(v));
+        }
+        CsvReader reader = new CsvReader(new StringReader(line + "\n"));
+        assertEquals(values, reader.next());
+        assertNull(reader.next());
+    }
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(csv));
+        List<List<String>> rows = new ArrayList<>();
+        for (List<String> row = reader.next(); row != null; row = reader.next()) {
+            rows.add(row);
+        }
+        return rows;
+    }
+}
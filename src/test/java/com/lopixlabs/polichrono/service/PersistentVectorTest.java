@@ -0,0 +1,68 @@
+package com.lopixlabs.polichrono.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PersistentVectorTest {
+
+    @Test
+    void editsLeaveEarlierVersionsUnchanged() {
+        PersistentVector.Editor<String> edit = PersistentVector.<String>empty().edit();
+        for (int i = 0; i < 100; i++) {
+            edit.set(i, "a" + i);
+        }
+        PersistentVector<String> v1 = edit.build();
+
+        edit = v1.edit();
+        edit.set(5, "b5");
+        edit.set(99, null);
+        PersistentVector<String> v2 = edit.build();
+
+        assertEquals("a5", v1.get(5));
+        assertEquals("a99", v1.get(99));
+        assertEquals("b5", v2.get(5));
+        assertNull(v2.get(99));
+        assertEquals("a6", v2.get(6));
+    }
+
+    @Test
+    void growingKeepsEarlierVersionsUnchanged() {
+        PersistentVector.Editor<String> edit = PersistentVector.<String>empty().edit();
+        edit.set(3, "a");
+        PersistentVector<String> small = edit.build();
+
+        // past 32 and 1024 entries the trie gains levels
+        edit = small.edit();
+        edit.set(40_000, "b");
+        edit.set(3, "c");
+        PersistentVector<String> large = edit.build();
+
+        assertEquals("a", small.get(3));
+        assertNull(small.get(40_000));
+        assertEquals("c", large.get(3));
+        assertEquals("b", large.get(40_000));
+        assertNull(large.get(1024));
+        assertNull(large.get(-1));
+    }
+
+    @Test
+    void oneEditorCopiesEachNodeOnce() {
+        PersistentVector.Editor<String> edit = PersistentVector.<String>empty().edit();
+        edit.set(0, "a");
+        PersistentVector<String> v1 = edit.build();
+
+        // several updates to the same leaf in one batch must all land in the new version only
+        edit = v1.edit();
+        edit.set(0, "b");
+        edit.set(1, "c");
+        edit.set(0, "d");
+        PersistentVector<String> v2 = edit.build();
+
+        assertEquals("a", v1.get(0));
+        assertNull(v1.get(1));
+        assertEquals("d", v2.get(0));
+        assertEquals("c", v2.get(1));
+    }
+}
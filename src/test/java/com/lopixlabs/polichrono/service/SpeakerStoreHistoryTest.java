@@ -0,0 +1,198 @@
+package com.lopixlabs.polichrono.service;
+
+import com.lopixlabs.polichrono.model.Speaker;
+import com.lopixlabs.polichrono.persistence.SpeakerRepository;
+import com.lopixlabs.polichrono.persistence.StoredState;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
+import jakarta.enterprise.util.TypeLiteral;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.annotation.Annotation;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpeakerStoreHistoryTest {
+
+    @TempDir
+    Path dir;
+
+    private SpeakerStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new SpeakerStore();
+        store.repository = new SpeakerRepository() {
+            private StoredState saved;
+
+            @Override
+            public StoredState load() {
+                return saved;
+            }
+
+            @Override
+            public void save(StoredState state) {
+                saved = state;
+            }
+        };
+        store.stateChanged = new IgnoredEvent<>();
+        store.timerChanged = new IgnoredEvent<>();
+        store.imagesDir = dir.toString();
+        store.defaultAutoStop = true;
+        store.defaultTitle = "";
+        store.historySize = 200;
+        store.historyCoalesceMillis = 2000;
+        store.replicationRole = "standalone";
+        store.relayUpstreamHost = Optional.empty();
+        store.init();
+    }
+
+    @Test
+    void undoRedoAcrossDelete() {
+        Speaker a = store.create("A", null);
+        Speaker b = store.create("B", null);
+        store.create("C", null);
+        int slot = slotOf(b);
+        store.start(b.getId());
+
+        store.delete(b.getId());
+        assertEquals(List.of("A", "C"), names());
+
+        assertTrue(store.undo());
+        assertEquals(List.of("A", "B", "C"), names());
+        assertEquals(slot, slotOf(b));
+        assertTrue(store.page(null, 10, null).items().get(1).isRunning());
+
+        assertTrue(store.redo());
+        assertEquals(List.of("A", "C"), names());
+        assertTrue(store.get(b.getId()).isEmpty());
+        assertTrue(store.get(a.getId()).isPresent());
+        assertFalse(store.redo());
+    }
+
+    @Test
+    void undoRedoImportReplace() {
+        Speaker a = store.create("A", null);
+        store.create("B", null);
+        int undoBefore = store.undoCount();
+
+        Speaker renamed = new Speaker();
+        renamed.setId(a.getId());
+        renamed.setName("A2");
+        renamed.setLimitMillis(60_000L);
+        store.importSpeakers(List.of(new Speaker("C", null), renamed).iterator(), true);
+        assertEquals(List.of("C", "A2"), names());
+        // the whole import is one step
+        assertEquals(undoBefore + 1, store.undoCount());
+
+        assertTrue(store.undo());
+        assertEquals(List.of("A", "B"), names());
+        assertEquals(null, store.get(a.getId()).orElseThrow().getLimitMillis());
+
+        assertTrue(store.redo());
+        assertEquals(List.of("C", "A2"), names());
+        assertEquals(60_000L, store.get(a.getId()).orElseThrow().getLimitMillis());
+    }
+
+    @Test
+    void undoRedoWhenSlotIsReused() {
+        Speaker a = store.create("A", null);
+        store.create("B", null);
+        store.create("C", null);
+        int slot = slotOf(a);
+
+        store.delete(a.getId());
+        Speaker d = store.create("D", null);
+        // the freed slot is taken by the new speaker
+        assertEquals(slot, slotOf(d));
+        store.setLimit(d.getId(), 30_000L, 5_000L);
+        assertEquals(List.of("B", "C", "D"), names());
+
+        assertTrue(store.undo());
+        assertEquals(List.of("B", "C", "D"), names());
+        assertEquals(null, store.get(d.getId()).orElseThrow().getLimitMillis());
+        assertTrue(store.undo());
+        assertEquals(List.of("B", "C"), names());
+        assertTrue(store.undo());
+        assertEquals(List.of("A", "B", "C"), names());
+        assertEquals(slot, slotOf(a));
+        assertTrue(store.get(d.getId()).isEmpty());
+
+        // a speaker created now must not collide with the restored slots
+        Speaker e = store.create("E", null);
+        assertEquals(List.of("A", "B", "C", "E"), names());
+        assertEquals(4, store.page(null, 100, null).items().stream().map(this::slotOf).distinct().count());
+        assertEquals(0, store.redoCount());
+
+        assertTrue(store.undo());
+        assertEquals(List.of("A", "B", "C"), names());
+        assertTrue(store.redo());
+        assertEquals(List.of("A", "B", "C", "E"), names());
+    }
+
+    @Test
+    void settingsChangesInQuickSuccessionAreOneStep() {
+        store.create("A", null);
+        int undoBefore = store.undoCount();
+
+        store.updateSize(300, null, null);
+        store.updateSize(310, null, null);
+        store.updateSize(320, null, null);
+        assertEquals(undoBefore + 1, store.undoCount());
+        assertEquals(320, store.getUiCardWidth());
+
+        assertTrue(store.undo());
+        assertEquals(360, store.getUiCardWidth());
+        assertEquals(List.of("A"), names());
+    }
+
+    private int slotOf(Speaker s) {
+        return store.get(s.getId()).orElseThrow().getSlot();
+    }
+
+    private List<String> names() {
+        return store.page(null, 100, null).items().stream().map(Speaker::getName).toList();
+    }
+
+    // the store only fires events, nothing observes them here
+    private static final class IgnoredEvent<T> implements Event<T> {
+
+        @Override
+        public void fire(T event) {
+        }
+
+        @Override
+        public <U extends T> CompletionStage<U> fireAsync(U event) {
+            return CompletableFuture.completedFuture(event);
+        }
+
+        @Override
+        public <U extends T> CompletionStage<U> fireAsync(U event, NotificationOptions options) {
+            return CompletableFuture.completedFuture(event);
+        }
+
+        @Override
+        public Event<T> select(Annotation... qualifiers) {
+            return this;
+        }
+
+        @Override
+        public <U extends T> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+            return new IgnoredEvent<>();
+        }
+
+        @Override
+        public <U extends T> Event<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+            return new IgnoredEvent<>();
+        }
+    }
+}
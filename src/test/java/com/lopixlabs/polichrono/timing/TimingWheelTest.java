@@ -0,0 +1,95 @@
+package com.lopixlabs.polichrono.timing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void timeoutsBeyondOneRevolutionWaitExtraRounds() throws Exception {
+        // 4 ticks of 10 ms: one revolution is 40 ms
+        try (TimingWheel wheel = new TimingWheel("test-wheel", 10, 4)) {
+            long[] delays = {5, 25, 45, 95, 170};
+            CountDownLatch done = new CountDownLatch(delays.length);
+            ConcurrentHashMap<Long, Long> firedAfter = new ConcurrentHashMap<>();
+            List<Long> order = new CopyOnWriteArrayList<>();
+            long start = System.nanoTime();
+            for (long d : delays) {
+                wheel.schedule(d, () -> {
+                    firedAfter.put(d, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    order.add(d);
+                    done.countDown();
+                });
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (long d : delays) {
+                assertTrue(firedAfter.get(d) >= d, d + " ms fired after " + firedAfter.get(d) + " ms");
+            }
+            assertEquals(List.of(5L, 25L, 45L, 95L, 170L), order);
+        }
+    }
+
+    @Test
+    void cancelledTimeoutsNeverRun() throws Exception {
+        try (TimingWheel wheel = new TimingWheel("test-wheel", 10, 4)) {
+            AtomicInteger cancelledRuns = new AtomicInteger();
+            TimingWheel.Timeout near = wheel.schedule(20, cancelledRuns::incrementAndGet);
+            // several rounds away, sharing a bucket with the one kept
+            TimingWheel.Timeout far = wheel.schedule(130, cancelledRuns::incrementAndGet);
+            CountDownLatch kept = new CountDownLatch(1);
+            wheel.schedule(170, kept::countDown);
+
+            wheel.cancel(near);
+            wheel.cancel(far);
+            // cancelling twice or nothing is a no-op
+            wheel.cancel(far);
+            wheel.cancel(null);
+
+            assertTrue(kept.await(5, TimeUnit.SECONDS));
+            assertEquals(0, cancelledRuns.get());
+        }
+    }
+
+    @Test
+    void cancelAfterExpiryIsNoOp() throws Exception {
+        try (TimingWheel wheel = new TimingWheel("test-wheel", 5, 8)) {
+            CountDownLatch first = new CountDownLatch(1);
+            TimingWheel.Timeout t = wheel.schedule(1, first::countDown);
+            assertTrue(first.await(5, TimeUnit.SECONDS));
+            wheel.cancel(t);
+
+            // the wheel still works after the no-op cancel
+            CountDownLatch second = new CountDownLatch(1);
+            wheel.schedule(1, second::countDown);
+            assertTrue(second.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheWheel() throws Exception {
+        try (TimingWheel wheel = new TimingWheel("test-wheel", 5, 8)) {
+            wheel.schedule(1, () -> {
+                throw new IllegalStateException("boom");
+            });
+            CountDownLatch after = new CountDownLatch(1);
+            wheel.schedule(20, after::countDown);
+            assertTrue(after.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void wheelSizeMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel("test-wheel", 10, 6));
+    }
+}